@@ -0,0 +1,97 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.ingest.BatchSink;
+import com.mapr.geospatial.lib.ingest.BulkLoader;
+import com.mapr.geospatial.lib.ingest.LoadStats;
+import org.ojai.json.Json;
+import org.ojai.store.Connection;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows and bytes per second of the bulk loader over a file of repeated sample airports.
+ * <p>
+ * Documents are parsed for real and written through {@code BatchSink.forStore} to an
+ * {@link InMemoryDocumentStore}, so the numbers show the read, parse and insert side of a load. Batch size 1
+ * is close to the old line by line insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkLoaderBenchmark {
+
+    private static final int ROWS = 200_000;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path file;
+
+    private BulkLoader loader;
+
+    private Connection connection;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Loaded {
+        public long rows;
+        public long bytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        List<String> points = SampleData.pointLines();
+        file = Files.createTempFile("points", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < ROWS; i++) {
+                writer.write(points.get(i % points.size()));
+                writer.newLine();
+            }
+        }
+        loader = BulkLoader.builder()
+            .parser(Json::newDocument)
+            .batchSize(batchSize)
+            .parallelism(parallelism)
+            .build();
+        connection = new InMemoryDocumentStore().connection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LoadStats load(Loaded loaded) throws IOException {
+        LoadStats stats = loader.load(file, BatchSink.forStore(connection, "points"));
+        loaded.rows += stats.getRows();
+        loaded.bytes += stats.getBytes();
+        return stats;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.mapr.geospatial.lib.CellIds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaf cell ids computed per second from latitude/longitude.
+ * <p>
+ * {@code perPoint} is the boxed one point at a time path of {@code S2Helper.generateCellIdFromDegrees},
+ * {@code batch} runs on one core and {@code parallelBatch} on all of them; divide the latter by the number
+ * of cores for ids per second per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellIdBenchmark {
+
+    private static final int POINTS = 1_000_000;
+
+    private double[] lats;
+    private double[] lngs;
+
+    @Setup
+    public void setUp() {
+        // Random points over the continental US, where the sample airports are
+        Random random = new Random(42);
+        lats = new double[POINTS];
+        lngs = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long[] perPoint() {
+        long[] ids = new long[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            Long id = S2CellId.fromLatLng(S2LatLng.fromDegrees(lats[i], lngs[i])).id();
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long[] batch() {
+        return CellIds.fromDegrees(lats, lngs);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long[] parallelBatch() {
+        return CellIds.parallelFromDegrees(lats, lngs);
+    }
+}
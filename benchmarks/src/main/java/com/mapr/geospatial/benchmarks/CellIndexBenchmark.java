@@ -0,0 +1,80 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIndex;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the in-memory cell index over random points of the continental US.
+ * <p>
+ * {@code count} uses a query whose covering and interior covering are already computed, as a hot query
+ * would; {@code coverAndCount} also covers the region, which is what a new query pays. Memory per point is
+ * printed by {@link CellIndexMemoryReport}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CellIndexBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int points;
+
+    @Param({"circle", "rectangle", "CT", "TX"})
+    public String region;
+
+    private CellIndex index;
+
+    private S2Helper helper;
+
+    private SpatialQuery query;
+
+    @Setup
+    public void setUp() {
+        index = randomIndex(points);
+        helper = new S2Helper();
+        query = SampleRegions.spatialQuery(helper, region);
+        // Computes the interior covering and the filter once
+        index.count(query);
+    }
+
+    @Benchmark
+    public int count() {
+        return index.count(query);
+    }
+
+    @Benchmark
+    public int coverAndCount() {
+        return index.count(SampleRegions.spatialQuery(helper, region));
+    }
+
+    /**
+     * Builds index of random points over the continental US
+     */
+    static CellIndex randomIndex(int points) {
+        Random random = new Random(42);
+        double[] lats = new double[points];
+        double[] lngs = new double[points];
+        for (int i = 0; i < points; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+        return CellIndex.of(lats, lngs);
+    }
+}
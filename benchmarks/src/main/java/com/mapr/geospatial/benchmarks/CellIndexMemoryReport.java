@@ -0,0 +1,32 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIndex;
+
+/**
+ * Prints the heap held by the in-memory cell index per point, measured and computed from its arrays.
+ * Run with a heap of at least 2 GB.
+ */
+public final class CellIndexMemoryReport {
+
+    private CellIndexMemoryReport() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %16s %16s%n", "points", "measured B/point", "arrays B/point");
+        for (int points : new int[]{1_000_000, 10_000_000}) {
+            long before = usedHeap();
+            CellIndex index = CellIndexBenchmark.randomIndex(points);
+            long after = usedHeap();
+            System.out.printf("%-10d %16.1f %16.1f%n", index.size(),
+                (after - before) / (double) points, index.getSizeInBytes() / (double) points);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
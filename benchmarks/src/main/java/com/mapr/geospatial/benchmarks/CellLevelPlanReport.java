@@ -0,0 +1,51 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellLevelPlan;
+import com.mapr.geospatial.lib.CellLevelPlanner;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+
+/**
+ * Compares plans of the sample regions over leaf ranges only, over parent columns at 8 and 12 planned by
+ * {@link CellLevelPlanner}, and over the column of a single level.
+ * <p>
+ * Lookups are the values and ranges the store looks up, the plan size. Scanned is the number of leaf cells
+ * selected by the plan relative to the covering, which is the relative number of rows read for evenly spread
+ * points; a single coarse level selects whole parents of the finer covering cells.
+ */
+public final class CellLevelPlanReport {
+
+    private static final int[] SINGLE_LEVELS = {4, 6, 8, 10, 12};
+
+    private CellLevelPlanReport() {
+    }
+
+    public static void main(String[] args) {
+        S2Helper helper = new S2Helper();
+        CellLevelPlanner planner = new CellLevelPlanner(8, 12);
+        CellLevelPlanner widePlanner = new CellLevelPlanner(new int[]{8, 12}, 16);
+
+        System.out.printf("%-12s %-16s %8s %8s %8s %9s %10s%n",
+            "region", "plan", "lookups", "values", "ranges", "scanned", "json");
+        for (String name : new String[]{"circle", "rectangle", "CT", "MI", "TX"}) {
+            SpatialQuery query = SampleRegions.spatialQuery(helper, name);
+            CellRanges ranges = query.getRanges();
+            double covering = new CellLevelPlanner().plan(query).getLeafCellCount();
+
+            System.out.printf("%-12s %-16s %8d %8d %8d %9.2f %10d%n", name, "leaf ranges",
+                ranges.size(), 0, ranges.size(), 1.0, query.getQuery().length());
+            print(name, "levels 8,12", planner.plan(query), covering);
+            print(name, "levels 8,12 x16", widePlanner.plan(query), covering);
+            for (int level : SINGLE_LEVELS) {
+                print(name, "level " + level, planner.planAtLevel(query, level), covering);
+            }
+        }
+    }
+
+    private static void print(String region, String name, CellLevelPlan plan, double covering) {
+        System.out.printf("%-12s %-16s %8d %8d %8d %9.2f %10d%n", region, name, plan.getLookupCount(),
+            plan.getValueCount(), plan.getLeafRanges().size(), plan.getLeafCellCount() / covering,
+            plan.getQuery().length());
+    }
+}
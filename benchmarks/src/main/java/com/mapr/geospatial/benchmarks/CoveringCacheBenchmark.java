@@ -0,0 +1,65 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CoveringCache;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of repeated state queries with the covering cache enabled and disabled.
+ * <p>
+ * Every invocation queries the next of the sample states, so all of them stay in the cache.
+ * The sample time mode reports the p50 and p99 latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoveringCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    @Param({"8", "64"})
+    public int maxCells;
+
+    private S2Helper helper;
+
+    private List<List<GPoint>> states;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        CoveringPolicy policy = CoveringPolicy.fixed(CoveringOptions.builder().maxCells(maxCells).build());
+        helper = cache
+            ? new S2Helper(policy, new CoveringCache(1000, 1_000_000))
+            : new S2Helper(policy);
+        states = new ArrayList<>(SampleData.states().values());
+    }
+
+    @Benchmark
+    public String stateQuery() {
+        List<GPoint> state = states.get(next);
+        next = (next + 1) % states.size();
+        return helper.getQueryForPolygon("cellId", state);
+    }
+}
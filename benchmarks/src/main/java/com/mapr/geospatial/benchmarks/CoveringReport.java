@@ -0,0 +1,100 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2Cell;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2Region;
+import com.google.common.geometry.S2RegionCoverer;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports how covering settings trade range scans against rows read outside of the region.
+ * <p>
+ * For every region and setting prints the number of covering cells and merged ranges, the covered area
+ * relative to the true area of the region, and how many of the sample airports the ranges scan
+ * compared to how many are really inside the region.
+ */
+public final class CoveringReport {
+
+    private CoveringReport() {
+    }
+
+    public static void main(String[] args) {
+        SampleData.Points points = SampleData.points();
+
+        Map<String, CoveringPolicy> policies = new LinkedHashMap<>();
+        policies.put("default", CoveringPolicy.fixed(CoveringOptions.DEFAULT));
+        for (int maxCells : new int[]{4, 16, 64, 256}) {
+            policies.put("maxCells=" + maxCells,
+                CoveringPolicy.fixed(CoveringOptions.builder().maxCells(maxCells).build()));
+        }
+        policies.put("maxCells=16,maxLevel=10",
+            CoveringPolicy.fixed(CoveringOptions.builder().maxCells(16).maxLevel(10).build()));
+        policies.put("adaptive", CoveringPolicy.adaptive());
+
+        System.out.printf("%-16s %-26s %6s %6s %9s %9s %9s%n",
+            "region", "setting", "cells", "ranges", "area", "scanned", "matching");
+        for (Map.Entry<String, S2Region> region : SampleRegions.all().entrySet()) {
+            int matching = countMatching(region.getValue(), points);
+            for (Map.Entry<String, CoveringPolicy> policy : policies.entrySet()) {
+                CoveringOptions options = policy.getValue().optionsFor(region.getValue());
+                S2RegionCoverer coverer = new S2RegionCoverer();
+                options.applyTo(coverer);
+                ArrayList<S2CellId> covering = new ArrayList<>();
+                coverer.getCovering(region.getValue(), covering);
+
+                CellRanges ranges = CellRanges.fromCovering(covering);
+                System.out.printf("%-16s %-26s %6d %6d %9.3f %9d %9d%n",
+                    region.getKey(), policy.getKey(), covering.size(), ranges.size(),
+                    coveredArea(covering) / trueArea(region.getValue()),
+                    countScanned(ranges, points), matching);
+            }
+        }
+    }
+
+    private static double coveredArea(ArrayList<S2CellId> covering) {
+        double area = 0;
+        for (S2CellId cellId : covering) {
+            area += new S2Cell(cellId).exactArea();
+        }
+        return area;
+    }
+
+    private static double trueArea(S2Region region) {
+        if (region instanceof S2Cap) {
+            return ((S2Cap) region).area();
+        }
+        if (region instanceof S2LatLngRect) {
+            return ((S2LatLngRect) region).area();
+        }
+        return ((S2Polygon) region).getArea();
+    }
+
+    private static int countScanned(CellRanges ranges, SampleData.Points points) {
+        int scanned = 0;
+        for (long cellId : points.cellIds) {
+            if (ranges.contains(cellId)) {
+                scanned++;
+            }
+        }
+        return scanned;
+    }
+
+    private static int countMatching(S2Region region, SampleData.Points points) {
+        int matching = 0;
+        for (long cellId : points.cellIds) {
+            if (region.contains(new S2Cell(new S2CellId(cellId)))) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+}
@@ -0,0 +1,130 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.geofence.GeofenceEngine;
+import com.mapr.geospatial.lib.geofence.GeofenceStats;
+import com.mapr.geospatial.lib.geofence.Position;
+import com.mapr.geospatial.lib.geofence.PositionSource;
+import com.mapr.geospatial.lib.join.SpatialJoin;
+import com.mapr.geospatial.lib.metrics.LatencyHistogram;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reports events per second and end-to-end latency of a {@link GeofenceEngine} with the sample states as fences,
+ * for 1 lane up to all cores.
+ * <p>
+ * 100k vehicles start at random points over the continental US and move about 2 km in a random direction with
+ * every position, so some of them cross state borders. Positions go through a local queue to the engine. First
+ * they are sent as fast as the engine takes them, for the throughput; then at half of that rate, for the
+ * latency from reading a position off the queue until its events are emitted, percentiles in microseconds.
+ * The number of vehicles inside of a state after the saturated run is printed with the throughput.
+ * <p>
+ * Usage: {@code GeofenceReport [positions]}, 5M by default; every position takes 20 bytes of heap.
+ */
+public final class GeofenceReport {
+
+    private static final int VEHICLES = 100_000;
+
+    /**
+     * About 2 km in degrees of latitude
+     */
+    private static final double STEP = 2 / 111.0;
+
+    private static final int QUEUE_CAPACITY = 65536;
+
+    private GeofenceReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        SpatialJoin fences = SpatialJoin.of(SampleData.states());
+        Random random = new Random(42);
+        double[] vehicleLats = new double[VEHICLES];
+        double[] vehicleLngs = new double[VEHICLES];
+        for (int i = 0; i < VEHICLES; i++) {
+            vehicleLats[i] = 25 + random.nextDouble() * 24;
+            vehicleLngs[i] = -125 + random.nextDouble() * 58;
+        }
+        int[] ids = new int[size];
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        for (int i = 0; i < size; i++) {
+            int vehicle = random.nextInt(VEHICLES);
+            double direction = random.nextDouble() * 2 * Math.PI;
+            vehicleLats[vehicle] += STEP * Math.sin(direction);
+            vehicleLngs[vehicle] += STEP * Math.cos(direction) / Math.cos(Math.toRadians(vehicleLats[vehicle]));
+            ids[i] = vehicle;
+            lats[i] = vehicleLats[vehicle];
+            lngs[i] = vehicleLngs[vehicle];
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d positions of %d vehicles, %d fences, %d cores%n%6s %12s %12s %9s | %12s %9s %9s %9s%n",
+            size, VEHICLES, fences.size(), cores, "lanes", "positions/s", "events/s", "inside",
+            "paced pos/s", "p50 us", "p99 us", "p99.9 us");
+        for (int lanes = 1; lanes <= cores; lanes *= 2) {
+            // The first run warms up the JIT
+            run(fences, lanes, ids, lats, lngs, 0);
+            Run saturated = run(fences, lanes, ids, lats, lngs, 0);
+            double rate = size * 1e9 / saturated.nanos;
+            Run paced = run(fences, lanes, ids, lats, lngs, rate / 2);
+            LatencyHistogram latency = paced.latency;
+            System.out.printf("%6d %12.0f %12.0f %9d | %12.0f %9.1f %9.1f %9.1f%n", lanes, rate,
+                (saturated.stats.getEnters() + saturated.stats.getExits()) * 1e9 / saturated.nanos,
+                saturated.stats.getTracked(), size * 1e9 / paced.nanos, latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3,
+                latency.getPercentile(99.9) / 1e3);
+        }
+    }
+
+    /**
+     * Sends all positions through a new engine
+     *
+     * @param rate positions per second, 0 for as fast as possible
+     */
+    private static Run run(SpatialJoin fences, int lanes, int[] ids, double[] lats, double[] lngs, double rate)
+        throws InterruptedException {
+        BlockingQueue<Position> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        GeofenceEngine engine = GeofenceEngine.builder()
+            .fences(fences)
+            .source(PositionSource.of(queue))
+            .sink(event -> {
+            })
+            .lanes(lanes)
+            .build();
+        engine.start();
+
+        long started = System.nanoTime();
+        for (int i = 0; i < ids.length; i++) {
+            if (rate > 0 && (i & 1023) == 0) {
+                long due = started + (long) (i * 1e9 / rate);
+                for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+                    LockSupport.parkNanos(due - now);
+                }
+            }
+            queue.put(new Position(ids[i], lats[i], lngs[i], System.currentTimeMillis()));
+        }
+        while (engine.getStats().getPositions() < ids.length) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        long nanos = System.nanoTime() - started;
+        engine.close();
+        return new Run(nanos, engine.getStats(), engine.getLatency());
+    }
+
+    private static final class Run {
+        private final long nanos;
+        private final GeofenceStats stats;
+        private final LatencyHistogram latency;
+
+        Run(long nanos, GeofenceStats stats, LatencyHistogram latency) {
+            this.nanos = nanos;
+            this.stats = stats;
+            this.latency = latency;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.aggregate.CellAggregation;
+import com.mapr.geospatial.lib.aggregate.CountPyramid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Reports the time to build a heatmap of 10M points at levels 6 to 12, about 100 km down to 2 km tiles.
+ * <p>
+ * The points are the sample airports, each spread into a cloud of about 50 km. {@code decode} derives the tile
+ * of every point by decoding its cell id into a {@code S2CellId} and counts the tiles in a hash map, as a
+ * client would; {@code counts} and {@code values} take the parent of the stored cell id in a
+ * {@link CellAggregation}, the latter with the sum, minimum and maximum of a value; {@code parallel} counts
+ * on all cores and merges the aggregations. {@code pyramid} reads the tiles of the continental US from a
+ * {@link CountPyramid} filled with the same points, whose build time is printed first.
+ * <p>
+ * Usage: {@code HeatmapReport [points] [repeats]}, 10M points and 3 repeats by default; every point takes
+ * 32 bytes of heap. Times are the best of the repeats in milliseconds.
+ */
+public final class HeatmapReport {
+
+    private static final int[] LEVELS = {6, 8, 10, 12};
+
+    private static final int CHUNK_SIZE = 65536;
+
+    private HeatmapReport() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        SampleData.Points sample = SampleData.points();
+        Random random = new Random(42);
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            int airport = random.nextInt(sample.lats.length);
+            lats[i] = sample.lats[airport] + random.nextGaussian() * 0.25;
+            lngs[i] = sample.lngs[airport] + random.nextGaussian() * 0.25;
+            values[i] = random.nextDouble() * 1000;
+        }
+        long[] cellIds = CellIds.parallelFromDegrees(lats, lngs);
+
+        long started = System.nanoTime();
+        CountPyramid pyramid = new CountPyramid(LEVELS);
+        pyramid.addAll(cellIds);
+        long single = System.nanoTime() - started;
+        started = System.nanoTime();
+        CountPyramid parallelPyramid = new CountPyramid(LEVELS);
+        chunks(size).forEach(chunk -> {
+            for (int i = chunk * CHUNK_SIZE; i < Math.min(size, (chunk + 1) * CHUNK_SIZE); i++) {
+                parallelPyramid.add(cellIds[i]);
+            }
+        });
+        System.out.printf("%d points, pyramid of levels 6, 8, 10, 12 built in %d ms, %d ms on all cores%n",
+            size, single / 1_000_000, (System.nanoTime() - started) / 1_000_000);
+
+        CellRanges us = new S2Helper().getSpatialQueryForRectangle("cellId",
+            new GPoint(24.0, -125.0), new GPoint(50.0, -66.0)).getRanges();
+
+        System.out.printf("%6s %8s %10s %10s %10s %10s %10s%n",
+            "level", "tiles", "decode", "counts", "values", "parallel", "pyramid");
+        for (int level : LEVELS) {
+            System.out.printf("%6d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", level,
+                pyramid.heatmap(us, level).size(),
+                best(1, () -> decode(cellIds, level).size()),
+                best(repeats, () -> {
+                    CellAggregation heatmap = CellAggregation.counts(level);
+                    for (long cellId : cellIds) {
+                        heatmap.add(cellId);
+                    }
+                    return heatmap.size();
+                }),
+                best(repeats, () -> {
+                    CellAggregation heatmap = CellAggregation.withValues(level);
+                    for (int i = 0; i < size; i++) {
+                        heatmap.add(cellIds[i], values[i]);
+                    }
+                    return heatmap.size();
+                }),
+                best(repeats, () -> chunks(size)
+                    .mapToObj(chunk -> {
+                        CellAggregation heatmap = CellAggregation.counts(level);
+                        for (int i = chunk * CHUNK_SIZE; i < Math.min(size, (chunk + 1) * CHUNK_SIZE); i++) {
+                            heatmap.add(cellIds[i]);
+                        }
+                        return heatmap;
+                    })
+                    .reduce(CellAggregation::merge)
+                    .map(CellAggregation::size)
+                    .orElse(0)),
+                best(repeats, () -> pyramid.heatmap(us, level).size()));
+        }
+    }
+
+    /**
+     * Counts the tiles through decoded cell ids
+     */
+    private static Map<Long, long[]> decode(long[] cellIds, int level) {
+        Map<Long, long[]> counts = new HashMap<>();
+        for (long cellId : cellIds) {
+            long tile = S2CellId.fromLatLng(new S2CellId(cellId).toLatLng()).parent(level).id();
+            counts.computeIfAbsent(tile, key -> new long[1])[0]++;
+        }
+        return counts;
+    }
+
+    private static IntStream chunks(int size) {
+        return IntStream.range(0, (size + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel();
+    }
+
+    /**
+     * Runs the task once to warm up, then the given times
+     *
+     * @return the shortest run in milliseconds
+     */
+    private static double best(int repeats, LongSupplier task) {
+        long best = Long.MAX_VALUE;
+        long result = task.getAsLong();
+        for (int repeat = 0; repeat < repeats; repeat++) {
+            long started = System.nanoTime();
+            result += task.getAsLong();
+            best = Math.min(best, System.nanoTime() - started);
+        }
+        if (result < 0) {
+            throw new IllegalStateException("No tiles");
+        }
+        return best / 1e6;
+    }
+}
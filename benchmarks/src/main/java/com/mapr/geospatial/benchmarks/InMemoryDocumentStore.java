@@ -0,0 +1,80 @@
+package com.mapr.geospatial.benchmarks;
+
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentStore;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for a table which only counts the inserted documents, so the bulk insert path of
+ * {@code BatchSink.forStore} is measured without a MapR cluster.
+ * <p>
+ * Every store opened through {@link #connection()} counts into the same table. Stores support
+ * {@code insert}, {@code flush} and {@code close}, any other call fails.
+ */
+public final class InMemoryDocumentStore {
+
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * @return offline connection whose every store is this table
+     */
+    public Connection connection() {
+        return OfflineConnection.create(path -> open());
+    }
+
+    /**
+     * Opens one more store of the table
+     */
+    public DocumentStore open() {
+        opened.increment();
+        return (DocumentStore) Proxy.newProxyInstance(
+            InMemoryDocumentStore.class.getClassLoader(),
+            new Class[]{DocumentStore.class},
+            (proxy, method, args) -> invoke(proxy, method, args));
+    }
+
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getOpenedStores() {
+        return opened.sum();
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "insert":
+                if (args[0] instanceof DocumentStream) {
+                    for (Document document : (DocumentStream) args[0]) {
+                        documents.increment();
+                    }
+                } else {
+                    documents.increment();
+                }
+                batches.increment();
+                return null;
+            case "flush":
+            case "close":
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryDocumentStore@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                throw new UnsupportedOperationException(method.getName() + " needs a MapR cluster");
+        }
+    }
+}
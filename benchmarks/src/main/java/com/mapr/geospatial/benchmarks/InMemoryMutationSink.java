@@ -0,0 +1,28 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.tracking.MutationSink;
+import org.ojai.store.DocumentMutation;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for a document store which keeps the last mutation of every document,
+ * so position updates are measured without a MapR cluster.
+ */
+public final class InMemoryMutationSink implements MutationSink {
+
+    private final ConcurrentHashMap<String, DocumentMutation> documents = new ConcurrentHashMap<>();
+
+    @Override
+    public void update(String id, DocumentMutation mutation) {
+        documents.put(id, mutation);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public int size() {
+        return documents.size();
+    }
+}
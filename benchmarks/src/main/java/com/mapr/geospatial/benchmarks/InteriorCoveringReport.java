@@ -0,0 +1,89 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2Cell;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2RegionCoverer;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports the fraction of exact point-in-polygon tests avoided by the interior covering on the sample states.
+ * <p>
+ * Candidates are the sample airports in the covering ranges of a state. A candidate in the interior ranges
+ * is accepted without a test. The area column is the interior covering area relative to the state area,
+ * which is the fraction avoided for uniformly spread points.
+ */
+public final class InteriorCoveringReport {
+
+    private InteriorCoveringReport() {
+    }
+
+    public static void main(String[] args) {
+        SampleData.Points points = SampleData.points();
+        Map<String, List<GPoint>> states = SampleData.states();
+
+        Map<String, CoveringPolicy> policies = new LinkedHashMap<>();
+        policies.put("default", CoveringPolicy.fixed(CoveringOptions.DEFAULT));
+        policies.put("maxCells=64", CoveringPolicy.fixed(CoveringOptions.builder().maxCells(64).build()));
+        policies.put("adaptive", CoveringPolicy.adaptive());
+
+        for (Map.Entry<String, CoveringPolicy> policy : policies.entrySet()) {
+            S2Helper helper = new S2Helper(policy.getValue());
+            System.out.printf("%n%s%n%-5s %10s %10s %9s %9s%n",
+                policy.getKey(), "state", "candidates", "avoided", "fraction", "area");
+
+            long totalCandidates = 0;
+            long totalAvoided = 0;
+            for (Map.Entry<String, List<GPoint>> state : states.entrySet()) {
+                SpatialQuery query = helper.getSpatialQueryForPolygon("cellId", state.getValue());
+                CellRanges interior = query.getInteriorRanges();
+
+                int candidates = 0;
+                int avoided = 0;
+                for (long cellId : points.cellIds) {
+                    if (query.getRanges().contains(cellId)) {
+                        candidates++;
+                        if (interior.contains(cellId)) {
+                            avoided++;
+                        }
+                    }
+                }
+                totalCandidates += candidates;
+                totalAvoided += avoided;
+
+                S2Polygon polygon = SampleData.polygon(state.getValue());
+                System.out.printf("%-5s %10d %10d %9.3f %9.3f%n", state.getKey(), candidates, avoided,
+                    fraction(avoided, candidates), interiorArea(polygon, policy.getValue()) / polygon.getArea());
+            }
+            System.out.printf("%-5s %10d %10d %9.3f%n", "all", totalCandidates, totalAvoided,
+                fraction(totalAvoided, totalCandidates));
+        }
+    }
+
+    private static double interiorArea(S2Polygon polygon, CoveringPolicy policy) {
+        S2RegionCoverer coverer = new S2RegionCoverer();
+        policy.optionsFor(polygon).applyTo(coverer);
+        ArrayList<S2CellId> interior = new ArrayList<>();
+        coverer.getInteriorCovering(polygon, interior);
+
+        double area = 0;
+        for (S2CellId cellId : interior) {
+            area += new S2Cell(cellId).exactArea();
+        }
+        return area;
+    }
+
+    private static double fraction(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+}
@@ -0,0 +1,156 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.RangeSource;
+import org.ojai.Document;
+import org.ojai.DocumentListener;
+import org.ojai.DocumentReader;
+import org.ojai.DocumentStream;
+import org.ojai.json.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory stand-in for a table scanned by cell id ranges, which waits like a remote store would.
+ * <p>
+ * Every query waits for a round trip, every range for a seek and every returned row for its transfer.
+ * The waits of one query add up, while concurrent queries wait at the same time, which is what makes
+ * splitting a large covering into parallel scans pay off against a real cluster.
+ */
+public final class LatencyInjectingRangeSource implements RangeSource {
+
+    /**
+     * Rows are paid for in chunks, parking for a single row is much less precise than its cost
+     */
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final long[] cellIds;
+    private final long queryNanos;
+    private final long seekNanos;
+    private final long rowNanos;
+
+    /**
+     * @param cellIds cell ids of the rows of the table, in any order
+     */
+    public LatencyInjectingRangeSource(long[] cellIds, long queryMicros, long seekMicros, long rowNanos) {
+        this.cellIds = cellIds.clone();
+        Arrays.sort(this.cellIds);
+        this.queryNanos = TimeUnit.MICROSECONDS.toNanos(queryMicros);
+        this.seekNanos = TimeUnit.MICROSECONDS.toNanos(seekMicros);
+        this.rowNanos = rowNanos;
+    }
+
+    @Override
+    public DocumentStream find(CellRanges ranges, long limit) {
+        return new ScanStream(ranges, limit);
+    }
+
+    private static void park(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private final class ScanStream implements DocumentStream, Iterator<Document> {
+        private final CellRanges ranges;
+        private final long limit;
+
+        private int range = -1;
+        private int row;
+        private long returned;
+        private long owedNanos;
+
+        ScanStream(CellRanges ranges, long limit) {
+            this.ranges = ranges;
+            this.limit = limit;
+            this.owedNanos = queryNanos;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (returned >= limit || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            while (range < 0 || row >= cellIds.length || cellIds[row] > ranges.max(range)) {
+                if (++range >= ranges.size()) {
+                    pay(0);
+                    return false;
+                }
+                owedNanos += seekNanos;
+                row = lowerBound(ranges.min(range));
+            }
+            return true;
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pay(MIN_PARK_NANOS);
+            owedNanos += rowNanos;
+            returned++;
+            return Json.newDocument().set("cellId", cellIds[row++]);
+        }
+
+        private void pay(long threshold) {
+            if (owedNanos >= threshold && owedNanos > 0) {
+                park(owedNanos);
+                owedNanos = 0;
+            }
+        }
+
+        private int lowerBound(long cellId) {
+            int index = Arrays.binarySearch(cellIds, cellId);
+            if (index < 0) {
+                return -index - 1;
+            }
+            while (index > 0 && cellIds[index - 1] == cellId) {
+                index--;
+            }
+            return index;
+        }
+
+        @Override
+        public Iterator<Document> iterator() {
+            return this;
+        }
+
+        @Override
+        public void streamTo(DocumentListener listener) {
+            while (hasNext()) {
+                if (!listener.documentArrived(next())) {
+                    return;
+                }
+            }
+            listener.eos();
+        }
+
+        @Override
+        public Iterable<DocumentReader> documentReaders() {
+            List<DocumentReader> readers = new ArrayList<>();
+            while (hasNext()) {
+                readers.add(next().asReader());
+            }
+            return readers;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        public Document getQueryPlan() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2Point;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.NearestNeighborSearch;
+import com.mapr.geospatial.lib.NearestNeighbors;
+import com.mapr.geospatial.lib.S2Helper;
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and rows read of a K nearest neighbours search against guessing a radius and doubling it.
+ * <p>
+ * The table is a {@link LatencyInjectingRangeSource} with random points over the continental US. The
+ * {@code rowsRead} and {@code searches} counters are totals of an iteration, their ratio is the number of
+ * rows read per search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestNeighborBenchmark {
+
+    private static final double METERS_PER_RADIAN = 1000 * 40075.017 / (2 * Math.PI);
+
+    private static final double INITIAL_RADIUS_IN_METERS = 1000;
+
+    private static final GPoint[] CENTERS = {
+        new GPoint(40.782865, -73.965355),
+        new GPoint(39.739236, -104.990251),
+        new GPoint(32.776664, -96.796988),
+        new GPoint(47.050000, -109.633333),
+    };
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"1", "10", "100"})
+    public int k;
+
+    private LatencyInjectingRangeSource source;
+
+    private S2Helper helper;
+
+    private NearestNeighborSearch search;
+
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long rowsRead;
+        public long searches;
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] lats = new double[rows];
+        double[] lngs = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+        // 1 ms round trip, 200 us per range seek and 2 us per row
+        source = new LatencyInjectingRangeSource(CellIds.fromDegrees(lats, lngs), 1000, 200, 2000);
+        helper = new S2Helper();
+        search = new NearestNeighborSearch(helper, source, "cellId");
+    }
+
+    @Benchmark
+    public NearestNeighbors expandingRings(Counters counters) {
+        NearestNeighbors result = search.find(nextCenter(), k);
+        counters.rowsRead += result.getRowsRead();
+        counters.searches++;
+        return result;
+    }
+
+    @Benchmark
+    public double[] doublingCircle(Counters counters) {
+        GPoint center = nextCenter();
+        S2Point centerPoint = S2LatLng.fromDegrees(center.getLatitude(), center.getLongitude()).toPoint();
+        counters.searches++;
+
+        for (double radius = INITIAL_RADIUS_IN_METERS; ; radius *= 2) {
+            CellRanges ranges = helper.getSpatialQueryForCircle("cellId", center, radius).getRanges();
+            double[] distances = new double[16];
+            int inside = 0;
+            try (DocumentStream stream = source.find(ranges, Long.MAX_VALUE)) {
+                for (Document document : stream) {
+                    counters.rowsRead++;
+                    double distance = centerPoint.angle(new S2CellId(document.getLong("cellId")).toPoint())
+                        * METERS_PER_RADIAN;
+                    if (distance <= radius) {
+                        if (inside == distances.length) {
+                            distances = Arrays.copyOf(distances, 2 * inside);
+                        }
+                        distances[inside++] = distance;
+                    }
+                }
+            }
+            if (inside >= k) {
+                Arrays.sort(distances, 0, inside);
+                return Arrays.copyOf(distances, k);
+            }
+        }
+    }
+
+    private GPoint nextCenter() {
+        GPoint center = CENTERS[next];
+        next = (next + 1) % CENTERS.length;
+        return center;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mapr.geospatial.benchmarks;
+
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentStore;
+import org.ojai.store.Driver;
+import org.ojai.store.DriverManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+/**
+ * OJAI connection which doesn't talk to a cluster.
+ * <p>
+ * Factory methods such as {@code newCondition()}, {@code newQuery()} and {@code newDocument()} are served
+ * by the MapR OJAI driver, which creates these objects locally. Stores are served by a given stand-in, e.g.
+ * {@link InMemoryDocumentStore}. Any other call fails.
+ */
+public final class OfflineConnection {
+
+    private static final String DRIVER_NAME = "ojai:mapr:";
+
+    private OfflineConnection() {
+    }
+
+    public static Connection create() {
+        return create(path -> {
+            throw new UnsupportedOperationException("getStore needs a MapR cluster");
+        });
+    }
+
+    /**
+     * @param stores opens the store of a path
+     */
+    public static Connection create(Function<String, DocumentStore> stores) {
+        Driver driver = DriverManager.getDriver(DRIVER_NAME);
+        return (Connection) Proxy.newProxyInstance(
+            OfflineConnection.class.getClassLoader(),
+            new Class[]{Connection.class},
+            (proxy, method, args) -> method.getName().equals("getStore") && args.length == 1
+                && args[0] instanceof String
+                ? stores.apply((String) args[0])
+                : invoke(driver, method, args));
+    }
+
+    private static Object invoke(Driver driver, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(driver, args);
+        }
+        Method delegate;
+        try {
+            delegate = Driver.class.getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException(method.getName() + " needs a MapR cluster");
+        }
+        try {
+            return delegate.invoke(driver, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
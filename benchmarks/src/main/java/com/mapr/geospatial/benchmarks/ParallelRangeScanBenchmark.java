@@ -0,0 +1,96 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2Region;
+import com.google.common.geometry.S2RegionCoverer;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.ParallelRangeScanner;
+import com.mapr.geospatial.lib.RangeScan;
+import org.ojai.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock time of scanning all ranges of a covering as one query and as parallel range scans.
+ * <p>
+ * The table is a {@link LatencyInjectingRangeSource} with a million random points over the continental US.
+ * Parallelism 1 is the single query path of the samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelRangeScanBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    @Param({"TX", "MT", "CT"})
+    public String region;
+
+    @Param({"1", "4", "16"})
+    public int parallelism;
+
+    @Param({"64"})
+    public int maxCells;
+
+    private LatencyInjectingRangeSource source;
+
+    private CellRanges ranges;
+
+    private ParallelRangeScanner scanner;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] lats = new double[ROWS];
+        double[] lngs = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+        // 1 ms round trip, 200 us per range seek and 2 us per row
+        source = new LatencyInjectingRangeSource(CellIds.fromDegrees(lats, lngs), 1000, 200, 2000);
+
+        S2Region s2Region = SampleRegions.byName(region);
+        S2RegionCoverer coverer = new S2RegionCoverer();
+        CoveringOptions.DEFAULT.toBuilder().maxCells(maxCells).build().applyTo(coverer);
+        ArrayList<S2CellId> covering = new ArrayList<>();
+        coverer.getCovering(s2Region, covering);
+        ranges = CellRanges.fromCovering(covering);
+
+        scanner = new ParallelRangeScanner(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanner.close();
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        try (RangeScan scan = scanner.scan(source, ranges)) {
+            for (Document document : scan) {
+                blackhole.consume(document);
+            }
+        }
+    }
+}
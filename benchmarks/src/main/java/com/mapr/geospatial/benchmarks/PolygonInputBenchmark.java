@@ -0,0 +1,84 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares polygon queries from a list of {@link GPoint} with queries from packed coordinate arrays.
+ * <p>
+ * Both paths start from the decoded state coordinates, as the polygon samples do, so the list path includes
+ * boxing every vertex. Run with {@code -prof gc} for the allocation profile. The covering is kept small
+ * so the input handling is not hidden by the coverer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolygonInputBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+
+    @Param({"TX", "MI", "CT"})
+    public String state;
+
+    private final S2Helper helper = new S2Helper(
+        CoveringPolicy.fixed(CoveringOptions.builder().maxCells(4).build()));
+
+    private double[] lats;
+    private double[] lngs;
+    private DoubleBuffer latLngs;
+
+    @Setup
+    public void setUp() {
+        List<GPoint> boundary = SampleData.states().get(state);
+        lats = new double[boundary.size()];
+        lngs = new double[boundary.size()];
+        latLngs = DoubleBuffer.allocate(2 * boundary.size());
+        for (int i = 0; i < boundary.size(); i++) {
+            lats[i] = boundary.get(i).getLatitude();
+            lngs[i] = boundary.get(i).getLongitude();
+            latLngs.put(lats[i]).put(lngs[i]);
+        }
+        latLngs.flip();
+    }
+
+    @Benchmark
+    public SpatialQuery gPointList() {
+        List<GPoint> points = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            points.add(new GPoint(lats[i], lngs[i]));
+        }
+        return helper.getSpatialQueryForPolygon(COLUMN_NAME, points);
+    }
+
+    @Benchmark
+    public SpatialQuery packedArrays() {
+        return helper.getSpatialQueryForPolygon(COLUMN_NAME, lats, lngs);
+    }
+
+    @Benchmark
+    public SpatialQuery doubleBuffer() {
+        return helper.getSpatialQueryForPolygon(COLUMN_NAME, latLngs);
+    }
+}
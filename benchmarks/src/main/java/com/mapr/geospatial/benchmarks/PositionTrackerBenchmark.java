@@ -0,0 +1,118 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.tracking.PositionTracker;
+import org.ojai.store.Connection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained position updates per second of vehicles moving about 3 m between two updates.
+ * <p>
+ * {@code tracked} goes through the position tracker, flushed every 10000 updates of a thread;
+ * {@code rewriteEveryUpdate} writes a mutation for every update, as the samples would. Both write to an
+ * {@link InMemoryMutationSink}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class PositionTrackerBenchmark {
+
+    private static final int VEHICLES_PER_THREAD = 25_000;
+
+    private static final int FLUSH_EVERY = 10_000;
+
+    /**
+     * About 3 m in degrees of latitude
+     */
+    private static final double STEP = 3 / 111_000.0;
+
+    @Param({"16", "20", "24"})
+    public int level;
+
+    private Connection connection;
+
+    private InMemoryMutationSink sink;
+
+    private PositionTracker tracker;
+
+    @State(Scope.Thread)
+    public static class Vehicles {
+        private final Random random = new Random();
+        private final String[] ids = new String[VEHICLES_PER_THREAD];
+        private final double[] lats = new double[VEHICLES_PER_THREAD];
+        private final double[] lngs = new double[VEHICLES_PER_THREAD];
+        private int updates;
+
+        @Setup
+        public void setUp() {
+            String thread = Long.toString(Thread.currentThread().getId());
+            for (int i = 0; i < VEHICLES_PER_THREAD; i++) {
+                ids[i] = thread + "-" + i;
+                lats[i] = 25 + random.nextDouble() * 24;
+                lngs[i] = -125 + random.nextDouble() * 58;
+            }
+        }
+
+        /**
+         * Moves a random vehicle one step in a random direction
+         */
+        int move() {
+            int vehicle = random.nextInt(VEHICLES_PER_THREAD);
+            double direction = random.nextDouble() * 2 * Math.PI;
+            lats[vehicle] += STEP * Math.sin(direction);
+            lngs[vehicle] += STEP * Math.cos(direction) / Math.cos(Math.toRadians(lats[vehicle]));
+            return vehicle;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        connection = OfflineConnection.create();
+        sink = new InMemoryMutationSink();
+        tracker = PositionTracker.builder()
+            .connection(connection)
+            .sink(sink)
+            .coordinatesPath("value.loc.coordinates[0]")
+            .level(level)
+            .build();
+    }
+
+    @Benchmark
+    public boolean tracked(Vehicles vehicles) {
+        int vehicle = vehicles.move();
+        boolean accepted = tracker.update(vehicles.ids[vehicle], vehicles.lats[vehicle], vehicles.lngs[vehicle]);
+        if (++vehicles.updates % FLUSH_EVERY == 0) {
+            tracker.flush();
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public void rewriteEveryUpdate(Vehicles vehicles) {
+        int vehicle = vehicles.move();
+        double lat = vehicles.lats[vehicle];
+        double lng = vehicles.lngs[vehicle];
+        sink.update(vehicles.ids[vehicle], connection.newMutation()
+            .setOrReplace("cellId", CellIds.fromDegrees(lat, lng))
+            .setOrReplace("value.loc.coordinates[0].latitude", lat)
+            .setOrReplace("value.loc.coordinates[0].longitude", lng));
+    }
+}
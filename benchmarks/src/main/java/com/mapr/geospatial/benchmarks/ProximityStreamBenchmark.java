@@ -0,0 +1,151 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2Point;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.Neighbor;
+import com.mapr.geospatial.lib.ProximityStream;
+import com.mapr.geospatial.lib.S2Helper;
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to the first, closest result and to all results of a proximity query, streamed ring by ring
+ * against collected and sorted at once.
+ * <p>
+ * The table is a {@link LatencyInjectingRangeSource} with random points over the continental US. The
+ * {@code peakBuffered} counter sums the largest number of results held in memory by every query and
+ * {@code results} the number of results of every query read in full; for the {@code all} benchmarks their
+ * ratio is the share of the results buffered at once, at most about {@code 1 / rings} for the stream plus the
+ * cells sticking out of a ring, and 1 for the collected query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProximityStreamBenchmark {
+
+    private static final int ROWS = 5_000_000;
+
+    private static final double METERS_PER_RADIAN = 1000 * 40075.017 / (2 * Math.PI);
+
+    private static final GPoint CENTER = new GPoint(39.739236, -104.990251);
+
+    @Param({"50000", "300000"})
+    public double radius;
+
+    private LatencyInjectingRangeSource source;
+
+    private S2Helper helper;
+
+    /**
+     * Number of rings of the streams, 1 only doubles the radius
+     */
+    @State(Scope.Benchmark)
+    public static class Rings {
+        @Param({"1", "16", "64"})
+        public int rings;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long peakBuffered;
+        public long results;
+        public long queries;
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] lats = new double[ROWS];
+        double[] lngs = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+        // 1 ms round trip, 200 us per range seek and 500 ns per row
+        source = new LatencyInjectingRangeSource(CellIds.fromDegrees(lats, lngs), 1000, 200, 500);
+        helper = new S2Helper();
+    }
+
+    @Benchmark
+    public Neighbor firstStreamed(Rings rings, Counters counters) {
+        ProximityStream stream = new ProximityStream(helper, source, "cellId", CENTER, radius, rings.rings);
+        Neighbor first = stream.iterator().next();
+        counters.peakBuffered += stream.getPeakPending();
+        counters.queries++;
+        return first;
+    }
+
+    @Benchmark
+    public Neighbor firstCollected(Counters counters) {
+        List<Neighbor> all = collectThenSort(counters);
+        return all.get(0);
+    }
+
+    @Benchmark
+    public void allStreamed(Rings rings, Counters counters, Blackhole blackhole) {
+        ProximityStream stream = new ProximityStream(helper, source, "cellId", CENTER, radius, rings.rings);
+        for (Neighbor neighbor : stream) {
+            blackhole.consume(neighbor);
+            counters.results++;
+        }
+        counters.peakBuffered += stream.getPeakPending();
+        counters.queries++;
+    }
+
+    @Benchmark
+    public void allCollected(Counters counters, Blackhole blackhole) {
+        for (Neighbor neighbor : collectThenSort(counters)) {
+            blackhole.consume(neighbor);
+        }
+    }
+
+    /**
+     * What the samples did before: one query for the whole covering, then an exact filter and a sort
+     */
+    private List<Neighbor> collectThenSort(Counters counters) {
+        S2Point center = S2LatLng.fromDegrees(CENTER.getLatitude(), CENTER.getLongitude()).toPoint();
+        CellRanges ranges = helper.getSpatialQueryForCircle("cellId", CENTER, radius).getRanges();
+        List<Neighbor> all = new ArrayList<>();
+        try (DocumentStream stream = source.find(ranges, Long.MAX_VALUE)) {
+            for (Document document : stream) {
+                double distance = center.angle(new S2CellId(document.getLong("cellId")).toPoint())
+                    * METERS_PER_RADIAN;
+                if (distance <= radius) {
+                    all.add(new Neighbor(document, distance));
+                }
+            }
+        }
+        all.sort(Comparator.comparingDouble(Neighbor::getDistanceInMeters));
+        counters.peakBuffered += all.size();
+        counters.results += all.size();
+        counters.queries++;
+        return all;
+    }
+}
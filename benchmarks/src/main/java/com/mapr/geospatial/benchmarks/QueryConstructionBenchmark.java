@@ -0,0 +1,82 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.S2Helper;
+import org.ojai.store.Connection;
+import org.ojai.store.Query;
+import org.ojai.store.QueryCondition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building an OJAI query from the JSON string filter with building it from a typed condition.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryConstructionBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+
+    @Param({"TX", "MI", "WY"})
+    public String state;
+
+    @Param({"8", "64"})
+    public int maxCells;
+
+    private final S2Helper helper = new S2Helper();
+
+    private Connection connection;
+
+    private CellRanges ranges;
+
+    private QueryCondition typeCondition;
+
+    @Setup
+    public void setUp() {
+        connection = OfflineConnection.create();
+
+        ranges = CellRanges.fromCovering(SampleData.stateCovering(state, maxCells));
+
+        typeCondition = connection.newCondition()
+            .is("value.type", QueryCondition.Op.EQUAL, "International")
+            .build();
+    }
+
+    @Benchmark
+    public Query stringQuery() {
+        return connection.newQuery()
+            .where(helper.getQueryForRanges(COLUMN_NAME, ranges))
+            .build();
+    }
+
+    @Benchmark
+    public Query typedCondition() {
+        return connection.newQuery()
+            .where(helper.getConditionForRanges(connection, COLUMN_NAME, ranges))
+            .build();
+    }
+
+    @Benchmark
+    public Query typedConditionWithAdditionalCondition() {
+        return connection.newQuery()
+            .where(helper.getConditionForRanges(connection, COLUMN_NAME, ranges, typeCondition))
+            .build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.S2Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the {@code $or} filter by string concatenation with building it from merged ranges.
+ * <p>
+ * The covering is computed once per trial, so only the query generation is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryGenerationBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+
+    @Param({"TX", "MI", "WY"})
+    public String state;
+
+    @Param({"8", "64", "512"})
+    public int maxCells;
+
+    private final S2Helper helper = new S2Helper();
+
+    private List<S2CellId> covering;
+
+    @Setup
+    public void setUp() {
+        covering = SampleData.stateCovering(state, maxCells);
+    }
+
+    @Benchmark
+    public String stringConcatenation() {
+        String query = "{\"$or\": [";
+        for (S2CellId cellId : covering) {
+            Long bmin = cellId.rangeMin().id();
+            Long bmax = cellId.rangeMax().id();
+
+            query += "{\"$and\": [{\"$ge\":{\"" + COLUMN_NAME + "\":" + bmin + "}}," +
+                "{\"$le\":{\"" + COLUMN_NAME + "\":" + bmax + "}}]},";
+        }
+        return query.substring(0, query.length() - 1) + "]}";
+    }
+
+    @Benchmark
+    public String mergedRanges() {
+        return helper.getQueryForRanges(COLUMN_NAME, CellRanges.fromCovering(covering));
+    }
+}
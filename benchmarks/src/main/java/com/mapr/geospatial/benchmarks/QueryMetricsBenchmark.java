@@ -0,0 +1,96 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import com.mapr.geospatial.lib.metrics.InMemoryQueryMetrics;
+import com.mapr.geospatial.lib.metrics.QueryMetrics;
+import org.ojai.Document;
+import org.ojai.json.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of recording query metrics, compared with a helper without metrics.
+ * <p>
+ * {@code circleQuery} covers a 20 km circle and generates its query, which records the covering and the query;
+ * the four thread variant shares one metrics instance to show contention on the counters. {@code filter}
+ * reads candidates of the circle through the exact filter, which times every call of the store iterator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryMetricsBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+    private static final GPoint CENTER = new GPoint(40.782865, -73.965355);
+    private static final double RADIUS_IN_METERS = 20000;
+    private static final int CANDIDATES = 1000;
+
+    @Param({"none", "inMemory"})
+    public String metrics;
+
+    private S2Helper helper;
+    private SpatialQuery query;
+    private List<Document> candidates;
+
+    @Setup
+    public void setUp() {
+        QueryMetrics queryMetrics = metrics.equals("none") ? QueryMetrics.NONE : new InMemoryQueryMetrics();
+        helper = new S2Helper(CoveringPolicy.fixed(CoveringOptions.DEFAULT), null, queryMetrics);
+        query = helper.getSpatialQueryForCircle(COLUMN_NAME, CENTER, RADIUS_IN_METERS);
+
+        // Points around the circle which the covering finds, as the store would return them
+        Random random = new Random(42);
+        candidates = new ArrayList<>();
+        while (candidates.size() < CANDIDATES) {
+            double lat = CENTER.getLatitude() - 0.3 + random.nextDouble() * 0.6;
+            double lng = CENTER.getLongitude() - 0.4 + random.nextDouble() * 0.8;
+            long cellId = CellIds.fromDegrees(lat, lng);
+            if (query.getRanges().contains(cellId)) {
+                candidates.add(Json.newDocument().set(COLUMN_NAME, cellId));
+            }
+        }
+    }
+
+    @Benchmark
+    public String circleQuery() {
+        return helper.getQueryForCircle(COLUMN_NAME, CENTER, RADIUS_IN_METERS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String circleQueryFourThreads() {
+        return helper.getQueryForCircle(COLUMN_NAME, CENTER, RADIUS_IN_METERS);
+    }
+
+    @Benchmark
+    public int filter() {
+        int matches = 0;
+        for (Document ignored : query.filter(candidates)) {
+            matches++;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,118 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Region;
+import com.google.common.geometry.S2RegionCoverer;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.RegionFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures exact filtering throughput in candidates per second.
+ * <p>
+ * Candidates are random points in a box slightly larger than the bound of the region, which is roughly
+ * what a covering query returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RegionFilterBenchmark {
+
+    private static final int CANDIDATES = 4_000_000;
+
+    @Param({"circle", "rectangle", "CT", "TX"})
+    public String region;
+
+    private RegionFilter filter;
+
+    private RegionFilter interiorFilter;
+
+    private double[] lats;
+    private double[] lngs;
+    private long[] cellIds;
+
+    @Setup
+    public void setUp() {
+        S2Region s2Region = SampleRegions.byName(region);
+        filter = RegionFilter.of(s2Region);
+
+        S2RegionCoverer coverer = new S2RegionCoverer();
+        CoveringOptions.DEFAULT.applyTo(coverer);
+        ArrayList<S2CellId> interior = new ArrayList<>();
+        coverer.getInteriorCovering(s2Region, interior);
+        interiorFilter = RegionFilter.of(s2Region, CellRanges.fromCovering(interior));
+
+        S2LatLngRect bound = s2Region.getRectBound();
+        double latMargin = (bound.lat().hi() - bound.lat().lo()) * 0.1;
+        double lngMargin = (bound.lng().hi() - bound.lng().lo()) * 0.1;
+        Random random = new Random(42);
+        lats = new double[CANDIDATES];
+        lngs = new double[CANDIDATES];
+        cellIds = new long[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            double lat = bound.lat().lo() - latMargin + random.nextDouble() * (bound.lat().hi() - bound.lat().lo() + 2 * latMargin);
+            double lng = bound.lng().lo() - lngMargin + random.nextDouble() * (bound.lng().hi() - bound.lng().lo() + 2 * lngMargin);
+            S2LatLng latLng = S2LatLng.fromRadians(lat, lng);
+            lats[i] = latLng.latDegrees();
+            lngs[i] = latLng.lngDegrees();
+            cellIds[i] = S2CellId.fromLatLng(latLng).id();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public int latLng() {
+        int matching = 0;
+        for (int i = 0; i < CANDIDATES; i++) {
+            if (filter.contains(lats[i], lngs[i])) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public int cellId() {
+        int matching = 0;
+        for (int i = 0; i < CANDIDATES; i++) {
+            if (filter.containsCell(cellIds[i])) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public int cellIdWithInterior() {
+        int matching = 0;
+        for (int i = 0; i < CANDIDATES; i++) {
+            if (interiorFilter.containsCell(cellIds[i])) {
+                matching++;
+            }
+        }
+        return matching;
+    }
+}
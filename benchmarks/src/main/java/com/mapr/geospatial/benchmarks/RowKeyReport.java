@@ -0,0 +1,113 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellKeyDesign;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.S2Helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compares read amplification of covering scans over cell row keys with scans of an indexed {@code cellId}
+ * column, on a sorted map standing in for the table.
+ * <p>
+ * The table holds random points over the continental US, 1M by default, sorted by their row key and stored
+ * in blocks of 64 rows. With opaque Mongo-style keys the covering ranges are looked up in a secondary index
+ * sorted by cell id, and every index entry costs a lookup of its row by key. With cell row keys every
+ * range is one scan of the table. The blocks column is the number of distinct blocks a query reads, the
+ * amplification is blocks read per block the found rows fill.
+ * <p>
+ * Usage: {@code RowKeyReport [points]}
+ */
+public final class RowKeyReport {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private RowKeyReport() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        long[] cellIds = new long[size];
+        String[] opaqueKeys = new String[size];
+        for (int i = 0; i < size; i++) {
+            cellIds[i] = CellIds.fromDegrees(25 + random.nextDouble() * 24, -125 + random.nextDouble() * 58);
+            opaqueKeys[i] = String.format("%08x%016x", random.nextInt(), random.nextLong());
+        }
+
+        // Opaque keys: the table in key order, and the secondary index of cell id to row key
+        NavigableMap<String, Integer> opaqueTable = table(opaqueKeys);
+        TreeMap<Long, List<String>> index = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            index.computeIfAbsent(cellIds[i], cellId -> new ArrayList<>(1)).add(opaqueKeys[i]);
+        }
+
+        // Cell row keys: the table alone
+        String[] cellKeys = new String[size];
+        for (int i = 0; i < size; i++) {
+            cellKeys[i] = CellKeyDesign.rowKey(cellIds[i], opaqueKeys[i]);
+        }
+        NavigableMap<String, Integer> cellTable = table(cellKeys);
+
+        System.out.printf("%d points, %d rows per block%n%-10s %8s %8s | %10s %10s %8s %6s | %10s %8s %6s%n",
+            size, BLOCK_SIZE, "region", "ranges", "rows",
+            "index rows", "lookups", "blocks", "ampl", "key scans", "blocks", "ampl");
+        S2Helper helper = new S2Helper();
+        for (String name : new String[]{"circle", "rectangle", "CT", "MI", "TX"}) {
+            CellRanges ranges = SampleRegions.spatialQuery(helper, name).getRanges();
+
+            BitSet indexedBlocks = new BitSet();
+            int indexRows = 0;
+            int lookups = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                for (List<String> keys : index.subMap(ranges.min(i), true, ranges.max(i), true).values()) {
+                    indexRows += keys.size();
+                    for (String key : keys) {
+                        lookups++;
+                        indexedBlocks.set(opaqueTable.get(key) / BLOCK_SIZE);
+                    }
+                }
+            }
+
+            BitSet clusteredBlocks = new BitSet();
+            int rows = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                NavigableMap<String, Integer> scan = ranges.max(i) == Long.MAX_VALUE
+                    ? cellTable.tailMap(CellKeyDesign.prefix(ranges.min(i)), true)
+                    : cellTable.subMap(CellKeyDesign.prefix(ranges.min(i)), true,
+                    CellKeyDesign.prefix(ranges.max(i) + 1), false);
+                for (Map.Entry<String, Integer> row : scan.entrySet()) {
+                    rows++;
+                    clusteredBlocks.set(row.getValue() / BLOCK_SIZE);
+                }
+            }
+
+            double minimalBlocks = Math.max(1, Math.ceil((double) rows / BLOCK_SIZE));
+            System.out.printf("%-10s %8d %8d | %10d %10d %8d %6.1f | %10d %8d %6.1f%n",
+                name, ranges.size(), rows, indexRows, lookups, indexedBlocks.cardinality(),
+                indexedBlocks.cardinality() / minimalBlocks, ranges.size(), clusteredBlocks.cardinality(),
+                clusteredBlocks.cardinality() / minimalBlocks);
+        }
+    }
+
+    /**
+     * Maps every key to its position in key order, which determines its block
+     */
+    private static NavigableMap<String, Integer> table(String[] keys) {
+        String[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        TreeMap<String, Integer> table = new TreeMap<>();
+        for (int i = 0; i < sorted.length; i++) {
+            table.put(sorted[i], i);
+        }
+        return table;
+    }
+}
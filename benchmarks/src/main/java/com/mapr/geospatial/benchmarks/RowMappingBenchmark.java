@@ -0,0 +1,93 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapr.geospatial.lib.mapping.CellPoint;
+import com.mapr.geospatial.lib.mapping.CellPointColumns;
+import com.mapr.geospatial.lib.mapping.CellPointMapper;
+import org.ojai.Document;
+import org.ojai.json.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows decoded per second from the sample airport documents, read a million rows at a time.
+ * <p>
+ * {@code jsonRoundTrip} serializes every document and parses it again, as the samples used to; the mapper
+ * reads the cell id and the coordinates directly into an object per row, and the columns into primitive
+ * arrays. Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final CellPointMapper cellPointMapper = CellPointMapper.builder()
+        .coordinatesPath("value.loc.coordinates[0]")
+        .build();
+
+    private List<Document> rows;
+
+    @Setup
+    public void setUp() {
+        // The sample airports repeated, the same document objects are read over and over
+        List<Document> airports = new ArrayList<>();
+        for (String line : SampleData.pointLines()) {
+            airports.add(Json.newDocument(line));
+        }
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(airports.get(i % airports.size()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double jsonRoundTrip() throws IOException {
+        double sum = 0;
+        for (Document row : rows) {
+            JsonNode node = mapper.readTree(row.asJsonString());
+            JsonNode coordinate = node.path("value").path("loc").path("coordinates").path(0);
+            sum += node.path("cellId").asLong() + coordinate.path("latitude").asDouble()
+                + coordinate.path("longitude").asDouble();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public double mapper() {
+        double sum = 0;
+        for (CellPoint point : cellPointMapper.mapAll(rows)) {
+            sum += point.getCellId() + point.getLatitude() + point.getLongitude();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public CellPointColumns columns() {
+        return cellPointMapper.mapColumns(rows);
+    }
+}
@@ -0,0 +1,194 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2Region;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression suite of the public {@link S2Helper} entry points, run by {@link S2HelperBenchmarks} together
+ * with the GC profiler so every result has its allocation rate.
+ * <p>
+ * Every suite has its own state, so it only runs over its own parameters: the circle radius, the rectangle
+ * size, the state and the number of its vertices, and for the queries the zoom level, the finest level of
+ * the covering cells. Cell ids are generated for random points over the continental US. Polygons run over
+ * every sample state; pass e.g. {@code -p state=TX,CT} to narrow them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S2HelperBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+    private static final GPoint CENTER = new GPoint(40.782865, -73.965355);
+    private static final int POINTS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Circle {
+        @Param({"100", "1000", "20000", "200000"})
+        public double radiusInMeters;
+
+        @Param({"12", "16", "30"})
+        public int zoomLevel;
+
+        S2Helper helper;
+
+        @Setup
+        public void setUp() {
+            helper = helper(zoomLevel);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Rectangle {
+        @Param({"0.01", "0.1", "1", "5"})
+        public double sizeInDegrees;
+
+        @Param({"12", "16", "30"})
+        public int zoomLevel;
+
+        S2Helper helper;
+        GPoint lowerLeft;
+        GPoint upperRight;
+
+        @Setup
+        public void setUp() {
+            helper = helper(zoomLevel);
+            lowerLeft = CENTER;
+            upperRight = new GPoint(CENTER.getLatitude() + sizeInDegrees, CENTER.getLongitude() + sizeInDegrees);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Vertices {
+        @Param({"WY", "PA", "OH", "NM", "MD", "OR", "WI", "ND", "NV", "GA", "AR", "KS", "NE", "UT", "MS", "OK",
+            "WV", "MI", "CO", "NJ", "DE", "MT", "WA", "CT", "MA", "ID", "MO", "AL", "SC", "NH", "SD", "IL",
+            "TN", "IN", "IA", "AZ", "MN", "DC", "VA", "TX", "VT"})
+        public String state;
+
+        /**
+         * Every n-th vertex is kept so at most this many remain, 0 keeps all of them
+         */
+        @Param({"0", "64", "16"})
+        public int vertices;
+
+        /**
+         * Covers with the faces only, so the polygon assembly is most of the time
+         */
+        final S2Helper helper = helper(0);
+        List<GPoint> boundary;
+
+        @Setup
+        public void setUp() {
+            boundary = boundary(state, vertices);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Polygon {
+        @Param({"WY", "PA", "OH", "NM", "MD", "OR", "WI", "ND", "NV", "GA", "AR", "KS", "NE", "UT", "MS", "OK",
+            "WV", "MI", "CO", "NJ", "DE", "MT", "WA", "CT", "MA", "ID", "MO", "AL", "SC", "NH", "SD", "IL",
+            "TN", "IN", "IA", "AZ", "MN", "DC", "VA", "TX", "VT"})
+        public String state;
+
+        @Param({"0", "64", "16"})
+        public int vertices;
+
+        @Param({"12", "16", "30"})
+        public int zoomLevel;
+
+        S2Helper helper;
+        List<GPoint> boundary;
+
+        @Setup
+        public void setUp() {
+            helper = helper(zoomLevel);
+            boundary = boundary(state, vertices);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Points {
+        final S2Helper helper = new S2Helper();
+        double[] lats;
+        double[] lngs;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(42);
+            lats = new double[POINTS];
+            lngs = new double[POINTS];
+            for (int i = 0; i < POINTS; i++) {
+                lats[i] = 25 + random.nextDouble() * 24;
+                lngs[i] = -125 + random.nextDouble() * 58;
+            }
+        }
+    }
+
+    @Benchmark
+    public String queryForCircle(Circle circle) {
+        return circle.helper.getQueryForCircle(COLUMN_NAME, CENTER, circle.radiusInMeters);
+    }
+
+    @Benchmark
+    public String queryForRectangle(Rectangle rectangle) {
+        return rectangle.helper.getQueryForRectangle(COLUMN_NAME, rectangle.lowerLeft, rectangle.upperRight);
+    }
+
+    @Benchmark
+    public String queryForPolygon(Polygon polygon) {
+        return polygon.helper.getQueryForPolygon(COLUMN_NAME, polygon.boundary);
+    }
+
+    /**
+     * Assembles the polygon through {@code S2Helper}, covered by at most the six faces
+     */
+    @Benchmark
+    public S2Region createPolygonFromCoordinates(Vertices vertices) {
+        return vertices.helper.getSpatialQueryForPolygon(COLUMN_NAME, vertices.boundary).getRegion();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long generateCellIdFromDegrees(Points points) {
+        long sum = 0;
+        for (int i = 0; i < POINTS; i++) {
+            sum += points.helper.generateCellIdFromDegrees(points.lats[i], points.lngs[i]);
+        }
+        return sum;
+    }
+
+    private static List<GPoint> boundary(String state, int vertices) {
+        List<GPoint> all = SampleData.states().get(state);
+        int step = vertices == 0 ? 1 : Math.max(1, (all.size() + vertices - 1) / vertices);
+        List<GPoint> boundary = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += step) {
+            boundary.add(all.get(i));
+        }
+        return boundary;
+    }
+
+    private static S2Helper helper(int zoomLevel) {
+        return new S2Helper(CoveringPolicy.fixed(CoveringOptions.builder().maxLevel(zoomLevel).build()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.mapr.geospatial.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link S2HelperBenchmark} with the GC profiler and writes the results as JSON, by default to
+ * {@code s2helper-benchmarks.json}, so the results of two releases can be compared.
+ * <p>
+ * Arguments are JMH command line options, e.g. {@code -rff release.json} or {@code -p state=TX}.
+ */
+public final class S2HelperBenchmarks {
+
+    private S2HelperBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+            .parent(commandLine)
+            .include(S2HelperBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON);
+        // Options of the builder override the command line, so the default file only applies without -rff
+        if (!commandLine.getResult().hasValue()) {
+            builder.result("s2helper-benchmarks.json");
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
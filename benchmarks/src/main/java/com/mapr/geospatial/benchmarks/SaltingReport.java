@@ -0,0 +1,115 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellKeyDesign;
+import com.mapr.geospatial.lib.CellSalting;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import com.mapr.geospatial.lib.metrics.QueryMetrics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shows how salt factors 1, 4 and 16 spread a burst of inserts from one city over the partitions of a table,
+ * and what they cost the queries.
+ * <p>
+ * The table is split into 32 partitions of the same size by the keys of 1M rows spread over the continental
+ * US, as a table splits while it grows. Then 200k rows from around Chicago are inserted, and the share of the
+ * busiest partitions is printed; with even writes every partition would get 3%. Rows are keyed by
+ * {@link CellKeyDesign#rowKey(long, String, CellSalting)}, the same applies to an index over the salt and the
+ * cell id columns.
+ * <p>
+ * For the queries, lookups are the key ranges of the covering in all buckets, and the lengths are those of the
+ * JSON query of the cell id column and of the row keys.
+ * <p>
+ * Usage: {@code SaltingReport [saltLevel]}, 13 by default, cells of about 1 km
+ */
+public final class SaltingReport {
+
+    private static final int[] SALT_FACTORS = {1, 4, 16};
+    private static final int PARTITIONS = 32;
+    private static final int TABLE_ROWS = 1_000_000;
+    private static final int BURST_ROWS = 200_000;
+    private static final int BUSIEST = 8;
+
+    private SaltingReport() {
+    }
+
+    public static void main(String[] args) {
+        int saltLevel = args.length > 0 ? Integer.parseInt(args[0]) : 13;
+
+        Random random = new Random(42);
+        long[] table = new long[TABLE_ROWS];
+        for (int i = 0; i < TABLE_ROWS; i++) {
+            table[i] = CellIds.fromDegrees(25 + random.nextDouble() * 24, -125 + random.nextDouble() * 58);
+        }
+        // About 10 km around downtown Chicago
+        long[] burst = new long[BURST_ROWS];
+        for (int i = 0; i < BURST_ROWS; i++) {
+            burst[i] = CellIds.fromDegrees(41.88 + random.nextGaussian() * 0.1, -87.63 + random.nextGaussian() * 0.1);
+        }
+
+        System.out.printf("Salt level %d, %d partitions, %d burst rows%n%n%-6s %8s %8s  %s%n",
+            saltLevel, PARTITIONS, BURST_ROWS, "salt", "written", "busiest", "busiest partitions");
+        for (int factor : SALT_FACTORS) {
+            CellSalting salting = CellSalting.of(factor, saltLevel);
+            String[] splits = splits(table, salting);
+            int[] writes = new int[PARTITIONS];
+            for (int i = 0; i < BURST_ROWS; i++) {
+                writes[partition(splits, CellKeyDesign.rowKey(burst[i], Integer.toHexString(i), salting))]++;
+            }
+
+            int[] sorted = writes.clone();
+            Arrays.sort(sorted);
+            StringBuilder busiest = new StringBuilder();
+            for (int i = 0; i < BUSIEST; i++) {
+                busiest.append(String.format("%5.1f%%", 100.0 * sorted[PARTITIONS - 1 - i] / BURST_ROWS));
+            }
+            System.out.printf("%-6d %8d %7.1f%%  %s%n", factor, Arrays.stream(writes).filter(w -> w > 0).count(),
+                100.0 * sorted[PARTITIONS - 1] / BURST_ROWS, busiest);
+        }
+
+        System.out.printf("%n%-12s %-6s %8s %8s %9s %10s %10s%n",
+            "region", "salt", "ranges", "lookups", "overhead", "json", "key json");
+        for (String name : new String[]{"500m", "circle", "rectangle", "CT", "MI", "TX"}) {
+            for (int factor : SALT_FACTORS) {
+                CellSalting salting = CellSalting.of(factor, saltLevel);
+                S2Helper helper = new S2Helper(CoveringPolicy.fixed(CoveringOptions.DEFAULT), null,
+                    QueryMetrics.NONE, salting);
+                SpatialQuery query = name.equals("500m")
+                    ? helper.getSpatialQueryForCircle("cellId", new GPoint(41.88, -87.63), 500)
+                    : SampleRegions.spatialQuery(helper, name);
+                int ranges = query.getRanges().size();
+                int lookups = salting.lookups(query.getRanges());
+                System.out.printf("%-12s %-6d %8d %8d %9.2f %10d %10d%n", name, factor, ranges, lookups,
+                    (double) lookups / ranges, query.getQuery().length(),
+                    CellKeyDesign.query(query.getRanges(), salting).length());
+            }
+        }
+    }
+
+    /**
+     * First keys of the partitions but the first one, splitting the table rows evenly
+     */
+    private static String[] splits(long[] cellIds, CellSalting salting) {
+        String[] keys = new String[cellIds.length];
+        for (int i = 0; i < cellIds.length; i++) {
+            keys[i] = CellKeyDesign.rowKey(cellIds[i], Integer.toHexString(i), salting);
+        }
+        Arrays.sort(keys);
+        String[] splits = new String[PARTITIONS - 1];
+        for (int i = 1; i < PARTITIONS; i++) {
+            splits[i - 1] = keys[(int) ((long) keys.length * i / PARTITIONS)];
+        }
+        return splits;
+    }
+
+    private static int partition(String[] splits, String key) {
+        int index = Arrays.binarySearch(splits, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,163 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2Point;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2PolygonBuilder;
+import com.google.common.geometry.S2RegionCoverer;
+import com.mapr.geospatial.lib.GPoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the sample {@code points} and {@code states} files shipped with the samples,
+ * so benchmarks run against the same data without a MapR cluster.
+ */
+public final class SampleData {
+
+    private static final String POINTS_SAMPLE_DATA = "points";
+    private static final String STATES_SAMPLE_DATA = "states";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private SampleData() {
+    }
+
+    /**
+     * Returns boundaries of all sample states keyed by state code, in file order
+     */
+    public static Map<String, List<GPoint>> states() {
+        Map<String, List<GPoint>> states = new LinkedHashMap<>();
+        for (JsonNode state : readLines(STATES_SAMPLE_DATA)) {
+            List<GPoint> boundary = new ArrayList<>();
+            for (JsonNode coordinate : state.path("loc").path("coordinates").path(0)) {
+                boundary.add(new GPoint(
+                    coordinate.path("latitude").asDouble(),
+                    coordinate.path("longitude").asDouble()));
+            }
+            states.put(state.path("code").asText(), boundary);
+        }
+        return states;
+    }
+
+    /**
+     * Returns sample airports as parallel arrays of cell ids and coordinates
+     */
+    public static Points points() {
+        List<JsonNode> lines = readLines(POINTS_SAMPLE_DATA);
+        Points points = new Points(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode line = lines.get(i);
+            JsonNode coordinate = line.path("value").path("loc").path("coordinates").path(0);
+            points.cellIds[i] = line.path("cellId").asLong();
+            points.lats[i] = coordinate.path("latitude").asDouble();
+            points.lngs[i] = coordinate.path("longitude").asDouble();
+        }
+        return points;
+    }
+
+    /**
+     * Returns sample airports as the json lines of the file, as they are loaded into the store
+     */
+    public static List<String> pointLines() {
+        return rawLines(POINTS_SAMPLE_DATA);
+    }
+
+    /**
+     * Builds the polygon the same way {@code S2Helper} does for a list of vertices
+     */
+    public static S2Polygon polygon(List<GPoint> vertices) {
+        S2PolygonBuilder builder = new S2PolygonBuilder();
+        S2Point first = toPoint(vertices.get(0));
+        S2Point previous = first;
+        for (int i = 1; i < vertices.size(); i++) {
+            S2Point current = toPoint(vertices.get(i));
+            builder.addEdge(previous, current);
+            previous = current;
+        }
+        builder.addEdge(previous, first);
+        return builder.assemblePolygon();
+    }
+
+    /**
+     * Computes the covering of a sample state with the given maximum number of cells
+     */
+    public static ArrayList<S2CellId> stateCovering(String state, int maxCells) {
+        S2RegionCoverer coverer = new S2RegionCoverer();
+        coverer.setLevelMod(1);
+        coverer.setMaxCells(maxCells);
+        ArrayList<S2CellId> covering = new ArrayList<>();
+        coverer.getCovering(polygon(states().get(state)), covering);
+        return covering;
+    }
+
+    private static S2Point toPoint(GPoint point) {
+        return S2LatLng.fromDegrees(point.getLatitude(), point.getLongitude()).toPoint();
+    }
+
+    private static List<JsonNode> readLines(String resource) {
+        List<JsonNode> nodes = new ArrayList<>();
+        try {
+            for (String line : rawLines(resource)) {
+                nodes.add(mapper.readTree(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return nodes;
+    }
+
+    private static List<String> rawLines(String resource) {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = open(resource)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    private static BufferedReader open(String resource) {
+        InputStream stream = SampleData.class.getClassLoader().getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalStateException("Cannot find file " + resource);
+        }
+        return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sample airports in parallel primitive arrays
+     */
+    public static final class Points {
+        public final long[] cellIds;
+        public final double[] lats;
+        public final double[] lngs;
+
+        Points(int size) {
+            cellIds = new long[size];
+            lats = new double[size];
+            lngs = new double[size];
+        }
+
+        public int size() {
+            return cellIds.length;
+        }
+    }
+}
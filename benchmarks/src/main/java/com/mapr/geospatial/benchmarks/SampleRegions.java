@@ -0,0 +1,85 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Region;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Regions searched by the samples, built the same way as {@code S2Helper} builds them.
+ */
+public final class SampleRegions {
+
+    private static final double EARTH_CIRCUMFERENCE_METERS = 1000 * 40075.017;
+
+    private SampleRegions() {
+    }
+
+    /**
+     * Circle around the reservoir in NYC Central Park, as in the Proximity sample
+     */
+    public static S2Cap circle(double radiusInMeters) {
+        double radius = 2 * Math.PI * radiusInMeters / EARTH_CIRCUMFERENCE_METERS;
+        return S2Cap.fromAxisHeight(
+            S2LatLng.fromDegrees(40.782865, -73.965355).normalized().toPoint(),
+            (radius * radius) / 2);
+    }
+
+    /**
+     * Rectangle of the Inclusion sample
+     */
+    public static S2LatLngRect rectangle() {
+        return S2LatLngRect.fromPointPair(
+            S2LatLng.fromDegrees(44.984924, -111.044691),
+            S2LatLng.fromDegrees(41.003994, -104.057992));
+    }
+
+    /**
+     * Returns region by name: {@code circle}, {@code rectangle} or a state code
+     */
+    public static S2Region byName(String name) {
+        switch (name) {
+            case "circle":
+                return circle(20000);
+            case "rectangle":
+                return rectangle();
+            default:
+                return SampleData.polygon(SampleData.states().get(name));
+        }
+    }
+
+    /**
+     * Returns query of the {@code cellId} column for the region named as in {@link #byName(String)},
+     * built through the helper
+     */
+    public static SpatialQuery spatialQuery(S2Helper helper, String name) {
+        switch (name) {
+            case "circle":
+                return helper.getSpatialQueryForCircle("cellId", new GPoint(40.782865, -73.965355), 20000);
+            case "rectangle":
+                return helper.getSpatialQueryForRectangle("cellId",
+                    new GPoint(41.003994, -111.044691), new GPoint(44.984924, -104.057992));
+            default:
+                return helper.getSpatialQueryForPolygon("cellId", SampleData.states().get(name));
+        }
+    }
+
+    /**
+     * 20 km circle, the rectangle and a small, a medium and a large state
+     */
+    public static Map<String, S2Region> all() {
+        Map<String, S2Region> regions = new LinkedHashMap<>();
+        regions.put("20km circle NYC", circle(20000));
+        regions.put("rectangle WY", rectangle());
+        for (String state : new String[]{"CT", "MI", "TX"}) {
+            regions.put("state " + state, byName(state));
+        }
+        return regions;
+    }
+}
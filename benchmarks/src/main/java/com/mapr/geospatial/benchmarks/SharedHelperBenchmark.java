@@ -0,0 +1,85 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.S2Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries planned per second by one {@link S2Helper} shared by all benchmark threads.
+ * <p>
+ * Every thread plans queries around its own random centers, so threads don't hit the same cells. Run through
+ * {@link SharedHelperScaling} for 1 to 32 threads, or with {@code -t} and {@code -prof gc} for the allocation
+ * per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SharedHelperBenchmark {
+
+    private static final String COLUMN_NAME = "cellId";
+    private static final int CENTERS = 1024;
+
+    private final S2Helper helper = new S2Helper();
+
+    private List<GPoint> polygon;
+
+    @Setup
+    public void setUp() {
+        polygon = SampleData.states().get("CT");
+    }
+
+    @State(Scope.Thread)
+    public static class Centers {
+        GPoint[] centers;
+        int next;
+
+        @Setup
+        public void setUp() {
+            // Random points over the continental US, a different sequence on every thread
+            Random random = new Random(Thread.currentThread().getId());
+            centers = new GPoint[CENTERS];
+            for (int i = 0; i < CENTERS; i++) {
+                centers[i] = new GPoint(25 + random.nextDouble() * 24, -125 + random.nextDouble() * 58);
+            }
+        }
+
+        GPoint next() {
+            GPoint center = centers[next];
+            next = (next + 1) % CENTERS;
+            return center;
+        }
+    }
+
+    @Benchmark
+    public String circle(Centers centers) {
+        return helper.getQueryForCircle(COLUMN_NAME, centers.next(), 20000);
+    }
+
+    @Benchmark
+    public String rectangle(Centers centers) {
+        GPoint lowerLeft = centers.next();
+        GPoint upperRight = new GPoint(lowerLeft.getLatitude() + 0.5, lowerLeft.getLongitude() + 0.5);
+        return helper.getQueryForRectangle(COLUMN_NAME, lowerLeft, upperRight);
+    }
+
+    @Benchmark
+    public String polygon() {
+        return helper.getQueryForPolygon(COLUMN_NAME, polygon);
+    }
+}
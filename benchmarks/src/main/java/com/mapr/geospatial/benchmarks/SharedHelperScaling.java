@@ -0,0 +1,44 @@
+package com.mapr.geospatial.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link SharedHelperBenchmark} with 1, 2, 4, 8, 16 and 32 threads and prints the throughput per thread,
+ * which stays flat while the shared helper scales linearly, up to the number of cores.
+ * <p>
+ * Arguments are JMH command line options, e.g. {@code SharedHelperScaling circle} for one benchmark only.
+ */
+public final class SharedHelperScaling {
+
+    private static final int MAX_THREADS = 32;
+
+    private SharedHelperScaling() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<RunResult> results = new ArrayList<>();
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            results.addAll(new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SharedHelperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .threads(threads)
+                .build()).run());
+        }
+
+        System.out.printf("%n%-60s %8s %14s %14s%n", "benchmark", "threads", "ops/s", "ops/s/thread");
+        for (RunResult result : results) {
+            int threads = result.getParams().getThreads();
+            double score = result.getPrimaryResult().getScore();
+            System.out.printf("%-60s %8d %14.0f %14.0f%n", result.getParams().getBenchmark(), threads, score,
+                score / threads);
+        }
+    }
+}
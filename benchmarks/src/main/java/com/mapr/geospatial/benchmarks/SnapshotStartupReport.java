@@ -0,0 +1,150 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellIndex;
+import com.mapr.geospatial.lib.CellIndexSnapshot;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time, heap and RSS of a query node which loads the points from JSON against one which maps
+ * a snapshot of the cell index. Every mode should run in its own JVM:
+ * <pre>
+ * SnapshotStartupReport prepare &lt;dir&gt; [points]   writes points.json and points.snapshot
+ * SnapshotStartupReport json &lt;dir&gt;                loads points.json into on-heap objects and an index
+ * SnapshotStartupReport snapshot &lt;dir&gt;            maps points.snapshot
+ * </pre>
+ * Both modes answer one query for Texas, which is part of the startup.
+ */
+public final class SnapshotStartupReport {
+
+    private static final String JSON_FILE = "points.json";
+    private static final String SNAPSHOT_FILE = "points.snapshot";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private SnapshotStartupReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SnapshotStartupReport prepare|json|snapshot <dir> [points]");
+            System.exit(1);
+        }
+        Path dir = Paths.get(args[1]);
+        switch (args[0]) {
+            case "prepare":
+                prepare(dir, args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000);
+                break;
+            case "json":
+                json(dir);
+                break;
+            case "snapshot":
+                snapshot(dir);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + args[0]);
+        }
+    }
+
+    private static void prepare(Path dir, int points) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(42);
+        double[] lats = new double[points];
+        double[] lngs = new double[points];
+        for (int i = 0; i < points; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lngs[i] = -125 + random.nextDouble() * 58;
+        }
+        long[] cellIds = CellIds.parallelFromDegrees(lats, lngs);
+
+        // Same shape as the points sample file
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(JSON_FILE), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < points; i++) {
+                writer.write(String.format(Locale.ROOT,
+                    "{\"_id\":\"%d\",\"cellId\":%d,\"value\":{\"loc\":{\"coordinates\":"
+                        + "[{\"latitude\":%.7f,\"longitude\":%.7f}]}}}",
+                    i, cellIds[i], lats[i], lngs[i]));
+                writer.newLine();
+            }
+        }
+        CellIndexSnapshot.write(CellIndex.of(cellIds, lats, lngs), dir.resolve(SNAPSHOT_FILE));
+        System.out.printf("%d points: json %d MB, snapshot %d MB%n", points,
+            Files.size(dir.resolve(JSON_FILE)) >> 20, Files.size(dir.resolve(SNAPSHOT_FILE)) >> 20);
+    }
+
+    private static void json(Path dir) throws IOException {
+        long start = System.nanoTime();
+        List<JsonNode> documents = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(dir.resolve(JSON_FILE), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                documents.add(mapper.readTree(line));
+            }
+        }
+        long[] cellIds = new long[documents.size()];
+        double[] lats = new double[documents.size()];
+        double[] lngs = new double[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            JsonNode document = documents.get(i);
+            JsonNode coordinate = document.path("value").path("loc").path("coordinates").path(0);
+            cellIds[i] = document.path("cellId").asLong();
+            lats[i] = coordinate.path("latitude").asDouble();
+            lngs[i] = coordinate.path("longitude").asDouble();
+        }
+        CellIndex index = CellIndex.of(cellIds, lats, lngs);
+        int found = index.count(texas());
+        report("json", start, found, documents.size());
+    }
+
+    private static void snapshot(Path dir) throws IOException {
+        long start = System.nanoTime();
+        CellIndexSnapshot snapshot = CellIndexSnapshot.open(dir.resolve(SNAPSHOT_FILE));
+        int found = snapshot.count(texas());
+        report("snapshot", start, found, snapshot.size());
+    }
+
+    private static SpatialQuery texas() {
+        return SampleRegions.spatialQuery(new S2Helper(), "TX");
+    }
+
+    private static void report(String mode, long start, int found, int points) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%-8s points %d, found in TX %d, startup %d ms, heap used %d MB, RSS %s%n",
+            mode, points, found, elapsed, heap >> 20, residentSetSize());
+    }
+
+    /**
+     * Reads the resident set size of the JVM, available on Linux only
+     */
+    private static String residentSetSize() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring("VmRSS:".length()).trim();
+                }
+            }
+        } catch (IOException e) {
+            // Not Linux
+        }
+        return "n/a";
+    }
+}
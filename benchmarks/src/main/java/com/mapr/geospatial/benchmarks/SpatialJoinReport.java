@@ -0,0 +1,90 @@
+package com.mapr.geospatial.benchmarks;
+
+import com.mapr.geospatial.lib.join.SpatialJoin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reports throughput of joining the sample airports, replicated to many points, with the sample states
+ * for a growing number of threads.
+ * <p>
+ * Usage: {@code SpatialJoinReport [points] [repeats]}, 100M points and 3 repeats by default; every point takes
+ * 20 bytes of heap. Every thread joins its own contiguous slice of the points. Points per second per thread
+ * stay flat as long as the threads scale linearly.
+ */
+public final class SpatialJoinReport {
+
+    private SpatialJoinReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        long started = System.nanoTime();
+        SpatialJoin join = SpatialJoin.of(SampleData.states());
+        System.out.printf("Built join of %d states in %d ms: %d cells, %d boundary cells%n", join.size(),
+            (System.nanoTime() - started) / 1_000_000, join.getCellCount(), join.getBoundaryCellCount());
+
+        SampleData.Points sample = SampleData.points();
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        for (int i = 0; i < size; i++) {
+            lats[i] = sample.lats[i % sample.lats.length];
+            lngs[i] = sample.lngs[i % sample.lngs.length];
+        }
+        int[] polygons = new int[size];
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d points, %d cores%n%8s %12s %14s %14s %8s%n", size, cores,
+            "threads", "best ms", "points/s", "points/s/core", "speedup");
+        double single = 0;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long best = Long.MAX_VALUE;
+            // The first run warms up the JIT
+            for (int repeat = 0; repeat <= repeats; repeat++) {
+                long elapsed = run(executor, threads, join, lats, lngs, polygons);
+                if (repeat > 0) {
+                    best = Math.min(best, elapsed);
+                }
+            }
+            executor.shutdown();
+
+            double rate = size * 1e9 / best;
+            if (threads == 1) {
+                single = rate;
+            }
+            System.out.printf("%8d %12d %14.0f %14.0f %8.2f%n", threads, best / 1_000_000, rate, rate / threads,
+                rate / single);
+        }
+
+        int inside = 0;
+        for (int polygon : polygons) {
+            if (polygon != SpatialJoin.NO_POLYGON) {
+                inside++;
+            }
+        }
+        System.out.printf("%d of %d points are in a state%n", inside, size);
+    }
+
+    private static long run(ExecutorService executor, int threads, SpatialJoin join,
+                            double[] lats, double[] lngs, int[] polygons) throws Exception {
+        int slice = (lats.length + threads - 1) / threads;
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int from = Math.min(lats.length, thread * slice);
+            int to = Math.min(lats.length, from + slice);
+            futures.add(executor.submit(() -> join.join(lats, lngs, polygons, from, to)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return System.nanoTime() - started;
+    }
+}
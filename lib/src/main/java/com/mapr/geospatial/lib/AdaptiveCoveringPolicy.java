@@ -0,0 +1,97 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Loop;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2Projections;
+import com.google.common.geometry.S2Region;
+
+/**
+ * Picks covering settings from the area and the shape of the region.
+ * <p>
+ * Every cell of a covering costs one range scan, while the area between the covering and the region costs
+ * rows which are read and thrown away. Caps and rectangles have a smooth boundary which a few cells follow
+ * well, while polygons with many vertices need more cells before the covering gets tight. Cells much
+ * smaller than the region only shave off a few rows, so the finest level is bounded by the region area.
+ */
+public class AdaptiveCoveringPolicy implements CoveringPolicy {
+
+    /**
+     * Cells for regions with a smooth boundary, e.g. circles and rectangles
+     */
+    private static final int SMOOTH_SHAPE_MAX_CELLS = 8;
+
+    /**
+     * Upper bound of cells for polygons, every cell is a range scan
+     */
+    private static final int POLYGON_MAX_CELLS = 64;
+
+    /**
+     * The finest cell covers at least this fraction of the region area
+     */
+    private static final double FINEST_CELL_AREA_FRACTION = 1.0 / 1024;
+
+    @Override
+    public CoveringOptions optionsFor(S2Region region) {
+        double area = area(region);
+
+        // Cells larger than the region can cover it only with a lot of waste
+        int minLevel = Math.max(0, S2Projections.AVG_AREA.getMaxLevel(area) - 1);
+        int maxLevel = Math.max(minLevel,
+            Math.min(S2CellId.MAX_LEVEL, S2Projections.AVG_AREA.getMinLevel(area * FINEST_CELL_AREA_FRACTION)));
+
+        return CoveringOptions.builder()
+            .maxCells(maxCells(region))
+            .minLevel(minLevel)
+            .maxLevel(maxLevel)
+            .levelMod(1)
+            .build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    private static int maxCells(S2Region region) {
+        if (region instanceof S2Polygon) {
+            // Every cell along the boundary is cut by a few edges, so the useful number of cells
+            // grows with the square root of the number of vertices
+            int vertices = numVertices((S2Polygon) region);
+            return (int) Math.min(POLYGON_MAX_CELLS, SMOOTH_SHAPE_MAX_CELLS + 2 * Math.sqrt(vertices));
+        }
+        return SMOOTH_SHAPE_MAX_CELLS;
+    }
+
+    /**
+     * @return area of the region in steradians
+     */
+    private static double area(S2Region region) {
+        if (region instanceof S2Cap) {
+            return ((S2Cap) region).area();
+        }
+        if (region instanceof S2LatLngRect) {
+            return ((S2LatLngRect) region).area();
+        }
+        if (region instanceof S2Polygon) {
+            return ((S2Polygon) region).getArea();
+        }
+        return region.getCapBound().area();
+    }
+
+    private static int numVertices(S2Polygon polygon) {
+        int vertices = 0;
+        for (int i = 0; i < polygon.numLoops(); i++) {
+            S2Loop loop = polygon.loop(i);
+            vertices += loop.numVertices();
+        }
+        return vertices;
+    }
+}
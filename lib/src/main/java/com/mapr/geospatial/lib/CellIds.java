@@ -0,0 +1,119 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2Point;
+
+import java.util.stream.IntStream;
+
+/**
+ * Bit-level helpers for raw S2 cell ids.
+ * <p>
+ * S2 cell ids encode their level in the position of the lowest set bit, so the range of leaf
+ * cells covered by a cell, or its parent at a coarser level, can be computed without allocating
+ * {@code S2CellId} instances. Cell ids of many points are computed in batches over primitive arrays.
+ */
+public final class CellIds {
+
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180;
+
+    /**
+     * Number of points computed by one task of {@link #parallelFromDegrees(double[], double[])}
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 8192;
+
+    private CellIds() {
+    }
+
+    /**
+     * Computes leaf cell id of the point, same as {@code S2CellId.fromLatLng(S2LatLng.fromDegrees(lat, lng))}
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     */
+    public static long fromDegrees(double lat, double lng) {
+        // Same computation as S2LatLng.toPoint(), without the intermediate S2LatLng
+        double latRadians = lat * DEGREES_TO_RADIANS;
+        double lngRadians = lng * DEGREES_TO_RADIANS;
+        double cosLat = Math.cos(latRadians);
+        return S2CellId.fromPoint(new S2Point(Math.cos(lngRadians) * cosLat, Math.sin(lngRadians) * cosLat,
+            Math.sin(latRadians))).id();
+    }
+
+    /**
+     * Computes leaf cell ids of the points, same as {@code S2CellId.fromLatLng(S2LatLng.fromDegrees(lat, lng))}
+     *
+     * @param lats latitudes in degrees
+     * @param lngs longitudes in degrees
+     * @return leaf cell id of every point
+     */
+    public static long[] fromDegrees(double[] lats, double[] lngs) {
+        checkSameLength(lats, lngs);
+        long[] ids = new long[lats.length];
+        fromDegrees(lats, lngs, ids, 0, lats.length);
+        return ids;
+    }
+
+    /**
+     * Computes leaf cell ids of the points on all cores, for large batches
+     *
+     * @param lats latitudes in degrees
+     * @param lngs longitudes in degrees
+     * @return leaf cell id of every point
+     */
+    public static long[] parallelFromDegrees(double[] lats, double[] lngs) {
+        checkSameLength(lats, lngs);
+        long[] ids = new long[lats.length];
+        int chunks = (lats.length + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * PARALLEL_CHUNK_SIZE;
+            fromDegrees(lats, lngs, ids, from, Math.min(from + PARALLEL_CHUNK_SIZE, lats.length));
+        });
+        return ids;
+    }
+
+    /**
+     * Computes leaf cell ids of the points in {@code [from, to)} into the same positions of {@code ids}
+     */
+    public static void fromDegrees(double[] lats, double[] lngs, long[] ids, int from, int to) {
+        for (int i = from; i < to; i++) {
+            ids[i] = fromDegrees(lats[i], lngs[i]);
+        }
+    }
+
+    /**
+     * Returns the id of the ancestor of the cell at the level, same as {@code S2CellId.parent(level)}
+     *
+     * @param level level of the parent, not finer than the level of the cell
+     */
+    public static long parent(long cellId, int level) {
+        long lowestOnBit = 1L << (2 * (S2CellId.MAX_LEVEL - level));
+        return (cellId & -lowestOnBit) | lowestOnBit;
+    }
+
+    /**
+     * Returns the lowest set bit of the cell id, which determines the level of the cell
+     */
+    public static long lowestOnBit(long cellId) {
+        return cellId & -cellId;
+    }
+
+    /**
+     * Returns the id of the first leaf cell contained by the cell, same as {@code S2CellId.rangeMin()}
+     */
+    public static long rangeMin(long cellId) {
+        return cellId - (lowestOnBit(cellId) - 1);
+    }
+
+    /**
+     * Returns the id of the last leaf cell contained by the cell, same as {@code S2CellId.rangeMax()}
+     */
+    public static long rangeMax(long cellId) {
+        return cellId + (lowestOnBit(cellId) - 1);
+    }
+
+    private static void checkSameLength(double[] lats, double[] lngs) {
+        Preconditions.checkArgument(lats.length == lngs.length,
+            "Latitudes and longitudes differ in length: %s, %s", lats.length, lngs.length);
+    }
+}
@@ -0,0 +1,229 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable in-memory index of points sorted by their leaf cell id.
+ * <p>
+ * Points are kept in parallel primitive arrays, 28 bytes per point: the cell id, latitude, longitude and
+ * a reference to the caller's payload, i.e. the position of the point in the arrays the index is built from.
+ * A query binary searches every merged range of the covering, accepts the points in the interior covering
+ * and tests the others against the exact region filter, without a round trip to the store.
+ * <p>
+ * Indexes can be shared between threads.
+ */
+public final class CellIndex {
+
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+    private final long[] cellIds;
+    private final double[] lats;
+    private final double[] lngs;
+    private final int[] refs;
+
+    private CellIndex(long[] cellIds, double[] lats, double[] lngs, int[] refs) {
+        this.cellIds = cellIds;
+        this.lats = lats;
+        this.lngs = lngs;
+        this.refs = refs;
+    }
+
+    /**
+     * Builds index of the points, the payload reference of a point is its position in the arrays
+     *
+     * @param lats latitudes in degrees
+     * @param lngs longitudes in degrees
+     */
+    public static CellIndex of(double[] lats, double[] lngs) {
+        return of(CellIds.parallelFromDegrees(lats, lngs), lats, lngs);
+    }
+
+    /**
+     * Builds index of the points whose leaf cell ids are already known, e.g. read from the {@code cellId} column
+     *
+     * @param cellIds leaf cell ids of the points
+     * @param lats    latitudes in degrees
+     * @param lngs    longitudes in degrees
+     * @throws IllegalArgumentException if an id is not a leaf cell id, e.g. of a parent column
+     */
+    public static CellIndex of(long[] cellIds, double[] lats, double[] lngs) {
+        Preconditions.checkArgument(cellIds.length == lats.length && lats.length == lngs.length,
+            "Arrays differ in length: %s, %s, %s", cellIds.length, lats.length, lngs.length);
+        int size = cellIds.length;
+        long[] sortedIds = cellIds.clone();
+        int[] refs = new int[size];
+        for (int i = 0; i < size; i++) {
+            // Snapshots store half the gaps between ids, which needs them all to be odd
+            Preconditions.checkArgument((cellIds[i] & 1) == 1, "Not a leaf cell id at %s: %s", i, cellIds[i]);
+            refs[i] = i;
+        }
+        sort(sortedIds, refs);
+
+        double[] sortedLats = new double[size];
+        double[] sortedLngs = new double[size];
+        for (int i = 0; i < size; i++) {
+            sortedLats[i] = lats[refs[i]];
+            sortedLngs[i] = lngs[refs[i]];
+        }
+        return new CellIndex(sortedIds, sortedLats, sortedLngs, refs);
+    }
+
+    /**
+     * @return number of indexed points
+     */
+    public int size() {
+        return cellIds.length;
+    }
+
+    long cellId(int position) {
+        return cellIds[position];
+    }
+
+    double latitude(int position) {
+        return lats[position];
+    }
+
+    double longitude(int position) {
+        return lngs[position];
+    }
+
+    int ref(int position) {
+        return refs[position];
+    }
+
+    /**
+     * @return memory held by the arrays of the index
+     */
+    public long getSizeInBytes() {
+        return (long) cellIds.length * (Long.BYTES + 2 * Double.BYTES + Integer.BYTES);
+    }
+
+    /**
+     * Finds the points inside of the searched region
+     *
+     * @return payload references of the points, ordered by cell id
+     */
+    public int[] search(SpatialQuery query) {
+        Refs found = new Refs();
+        forEach(query, found);
+        return Arrays.copyOf(found.refs, found.size);
+    }
+
+    /**
+     * Counts the points inside of the searched region
+     */
+    public int count(SpatialQuery query) {
+        int[] count = {0};
+        forEach(query, ref -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Passes payload references of the points inside of the searched region to the consumer, ordered by cell id
+     */
+    public void forEach(SpatialQuery query, IntConsumer consumer) {
+        CellRanges ranges = query.getRanges();
+        CellRanges interior = query.getInteriorRanges();
+        RegionFilter filter = query.getFilter();
+        // Ids only grow, so the interior range of the current id is found by walking forward
+        int interiorRange = 0;
+        for (int range = 0; range < ranges.size(); range++) {
+            int from = lowerBound(ranges.min(range));
+            long max = ranges.max(range);
+            for (int i = from; i < cellIds.length && cellIds[i] <= max; i++) {
+                long cellId = cellIds[i];
+                while (interiorRange < interior.size() && interior.max(interiorRange) < cellId) {
+                    interiorRange++;
+                }
+                boolean inInterior = interiorRange < interior.size() && interior.min(interiorRange) <= cellId;
+                if (inInterior || filter.contains(lats[i], lngs[i])) {
+                    consumer.accept(refs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return index of the first point with cell id not smaller than the given one
+     */
+    private int lowerBound(long cellId) {
+        int low = 0;
+        int high = cellIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cellIds[middle] < cellId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts the ids together with the references by the signed value of the ids.
+     * LSD radix sort with 16-bit digits, digits equal for all ids are skipped.
+     */
+    private static void sort(long[] ids, int[] refs) {
+        int size = ids.length;
+        long[] sourceIds = ids;
+        int[] sourceRefs = refs;
+        long[] targetIds = new long[size];
+        int[] targetRefs = new int[size];
+        int[] offsets = new int[RADIX_MASK + 2];
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < size; i++) {
+                offsets[digit(sourceIds[i], shift) + 1]++;
+            }
+            if (size == 0 || offsets[digit(sourceIds[0], shift) + 1] == size) {
+                continue;
+            }
+            for (int digit = 0; digit <= RADIX_MASK; digit++) {
+                offsets[digit + 1] += offsets[digit];
+            }
+            for (int i = 0; i < size; i++) {
+                int position = offsets[digit(sourceIds[i], shift)]++;
+                targetIds[position] = sourceIds[i];
+                targetRefs[position] = sourceRefs[i];
+            }
+
+            long[] swapIds = sourceIds;
+            sourceIds = targetIds;
+            targetIds = swapIds;
+            int[] swapRefs = sourceRefs;
+            sourceRefs = targetRefs;
+            targetRefs = swapRefs;
+        }
+
+        if (sourceIds != ids) {
+            System.arraycopy(sourceIds, 0, ids, 0, size);
+            System.arraycopy(sourceRefs, 0, refs, 0, size);
+        }
+    }
+
+    /**
+     * Flipping the sign bit orders signed ids as unsigned digits
+     */
+    private static int digit(long id, int shift) {
+        return (int) ((id ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK;
+    }
+
+    private static final class Refs implements IntConsumer {
+        private int[] refs = new int[16];
+        private int size;
+
+        @Override
+        public void accept(int ref) {
+            if (size == refs.length) {
+                refs = Arrays.copyOf(refs, 2 * size);
+            }
+            refs[size++] = ref;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only {@link CellIndex} stored in a file and queried directly in the memory mapped file.
+ * <p>
+ * Nothing is decoded when a snapshot is opened and the points don't live on the heap, so opening is
+ * instant and processes on the same host which open the same file share its pages. Layout, big-endian:
+ * <ul>
+ * <li>header: magic, version, number of points, points per block, number of blocks and the offsets of
+ * the cell ids, coordinates and references, eight ints;</li>
+ * <li>block index: first cell id and offset of the ids of every block of {@value #BLOCK_SIZE} points,
+ * so a range lookup binary searches the blocks and decodes at most one block before its first id;</li>
+ * <li>cell ids: per block, the half differences of consecutive sorted ids as unsigned varints, leaf ids are
+ * odd so their differences are even;</li>
+ * <li>coordinates: latitude and longitude of every point in 1e-7 degrees, two ints, about 1 cm;</li>
+ * <li>payload references: one int per point.</li>
+ * </ul>
+ * Coordinates are rounded to 1e-7 degrees, so a point within about a centimetre of the region boundary
+ * may be filtered differently than by the index the snapshot was written from.
+ * <p>
+ * Snapshots can be shared between threads, queries only use absolute reads of the buffer.
+ */
+public final class CellIndexSnapshot {
+
+    private static final int MAGIC = 0x53324349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * Integer.BYTES;
+    private static final int BLOCK_INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int BLOCK_SIZE = 128;
+    private static final double E7 = 1e7;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int blockSize;
+    private final int blocks;
+    private final int idsOffset;
+    private final int coordinatesOffset;
+    private final int refsOffset;
+
+    private CellIndexSnapshot(ByteBuffer buffer) {
+        Preconditions.checkArgument(buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC,
+            "Not a cell index snapshot");
+        Preconditions.checkArgument(buffer.getInt(4) == VERSION, "Unsupported snapshot version %s", buffer.getInt(4));
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        this.blockSize = buffer.getInt(12);
+        this.blocks = buffer.getInt(16);
+        this.idsOffset = buffer.getInt(20);
+        this.coordinatesOffset = buffer.getInt(24);
+        this.refsOffset = buffer.getInt(28);
+    }
+
+    /**
+     * Writes the index to the file, replacing it
+     */
+    public static void write(CellIndex index, Path file) throws IOException {
+        int size = index.size();
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        // Varint ids are encoded first, the block index needs their offsets
+        long[] firstIds = new long[blocks];
+        int[] blockOffsets = new int[blocks];
+        byte[] ids = new byte[size * 2];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            if (ids.length - length < 10) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            if (i % BLOCK_SIZE == 0) {
+                firstIds[i / BLOCK_SIZE] = index.cellId(i);
+                blockOffsets[i / BLOCK_SIZE] = length;
+            } else {
+                length = writeVarint(ids, length, (index.cellId(i) - index.cellId(i - 1)) >>> 1);
+            }
+        }
+
+        int idsOffset = HEADER_SIZE + blocks * BLOCK_INDEX_ENTRY_SIZE;
+        int coordinatesOffset = align(idsOffset + length);
+        int refsOffset = coordinatesOffset + size * 2 * Integer.BYTES;
+        Preconditions.checkArgument((long) refsOffset + (long) size * Integer.BYTES <= Integer.MAX_VALUE,
+            "Index of %s points is too large for one snapshot", size);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(BLOCK_SIZE);
+            out.writeInt(blocks);
+            out.writeInt(idsOffset);
+            out.writeInt(coordinatesOffset);
+            out.writeInt(refsOffset);
+            for (int block = 0; block < blocks; block++) {
+                out.writeLong(firstIds[block]);
+                out.writeInt(idsOffset + blockOffsets[block]);
+            }
+            out.write(ids, 0, length);
+            for (int padding = idsOffset + length; padding < coordinatesOffset; padding++) {
+                out.writeByte(0);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt((int) Math.round(index.latitude(i) * E7));
+                out.writeInt((int) Math.round(index.longitude(i) * E7));
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(index.ref(i));
+            }
+        }
+    }
+
+    /**
+     * Maps the snapshot file, the mapping stays valid after the file is closed
+     */
+    public static CellIndexSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CellIndexSnapshot(buffer);
+        }
+    }
+
+    /**
+     * @return number of indexed points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return size of the mapped file
+     */
+    public long getSizeInBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Counts the points inside of the searched region
+     */
+    public int count(SpatialQuery query) {
+        int[] count = {0};
+        forEach(query, ref -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Passes payload references of the points inside of the searched region to the consumer, ordered by cell id
+     */
+    public void forEach(SpatialQuery query, IntConsumer consumer) {
+        CellRanges ranges = query.getRanges();
+        CellRanges interior = query.getInteriorRanges();
+        RegionFilter filter = query.getFilter();
+        int interiorRange = 0;
+
+        for (int range = 0; range < ranges.size() && size > 0; range++) {
+            long min = ranges.min(range);
+            long max = ranges.max(range);
+
+            int block = startBlock(min);
+            int position = block * blockSize;
+            long cellId = buffer.getLong(blockIndexOffset(block));
+            int offset = buffer.getInt(blockIndexOffset(block) + Long.BYTES);
+
+            while (cellId <= max) {
+                if (cellId >= min) {
+                    while (interiorRange < interior.size() && interior.max(interiorRange) < cellId) {
+                        interiorRange++;
+                    }
+                    boolean inInterior = interiorRange < interior.size() && interior.min(interiorRange) <= cellId;
+                    if (inInterior || filter.contains(latitude(position), longitude(position))) {
+                        consumer.accept(buffer.getInt(refsOffset + position * Integer.BYTES));
+                    }
+                }
+
+                position++;
+                if (position == size) {
+                    break;
+                }
+                if (position % blockSize == 0) {
+                    block++;
+                    cellId = buffer.getLong(blockIndexOffset(block));
+                    offset = buffer.getInt(blockIndexOffset(block) + Long.BYTES);
+                } else {
+                    long delta = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = buffer.get(offset++);
+                        delta |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    cellId += delta << 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the last block whose first id is below the given one, points equal to it may end that block
+     */
+    private int startBlock(long cellId) {
+        int low = 0;
+        int high = blocks - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (buffer.getLong(blockIndexOffset(middle)) < cellId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int blockIndexOffset(int block) {
+        return HEADER_SIZE + block * BLOCK_INDEX_ENTRY_SIZE;
+    }
+
+    private double latitude(int position) {
+        return buffer.getInt(coordinatesOffset + position * 2 * Integer.BYTES) / E7;
+    }
+
+    private double longitude(int position) {
+        return buffer.getInt(coordinatesOffset + position * 2 * Integer.BYTES + Integer.BYTES) / E7;
+    }
+
+    private static int writeVarint(byte[] target, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int align(int offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+}
@@ -0,0 +1,246 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentStore;
+import org.ojai.store.Query;
+import org.ojai.store.QueryCondition;
+
+/**
+ * Row keys which start with the cell id, so the table keeps spatially close rows next to each other.
+ * <p>
+ * A key is the leaf cell id with its sign bit flipped, as 16 lower case hex digits, then {@value #SEPARATOR}
+ * and a suffix which makes the key unique, e.g. the original document id. Flipping the sign makes the byte
+ * order of the keys the signed order of the cell ids, the order of {@link CellRanges}. A merged covering
+ * range is then one contiguous scan of the primary key, instead of a secondary index lookup per row.
+ * <p>
+ * Keys of a {@link CellSalting salted} table start with the bucket of their cell, and every range is scanned
+ * once per bucket.
+ * <p>
+ * Cell row keys are for static points only. A key can't be changed by a mutation, so a moved point would
+ * stay under the key of its old cell and the scans of its new cell would miss it; tables of moving objects,
+ * e.g. updated by a {@code PositionTracker}, keep their ids and query an indexed cell id column instead.
+ */
+public final class CellKeyDesign {
+
+    /**
+     * Column of the row key
+     */
+    public static final String ID_COLUMN = "_id";
+
+    /**
+     * Separates the cell id prefix from the unique suffix
+     */
+    public static final char SEPARATOR = '-';
+
+    private static final int PREFIX_LENGTH = 16;
+
+    /**
+     * Length of the {@link CellSalting#keyPrefix(int) salt prefix} of salted keys
+     */
+    private static final int SALT_LENGTH = 3;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private CellKeyDesign() {
+    }
+
+    /**
+     * Builds the row key of a document
+     *
+     * @param cellId leaf cell id of the document
+     * @param suffix unique id of the document, e.g. its original {@code _id}
+     */
+    public static String rowKey(long cellId, String suffix) {
+        return new StringBuilder(PREFIX_LENGTH + 1 + suffix.length())
+            .append(prefix(cellId))
+            .append(SEPARATOR)
+            .append(suffix)
+            .toString();
+    }
+
+    /**
+     * Builds the row key of a document in a salted table, the key starts with the
+     * {@link CellSalting#keyPrefix(int) prefix} of the bucket of the cell
+     *
+     * @param cellId  leaf cell id of the document
+     * @param suffix  unique id of the document, e.g. its original {@code _id}
+     * @param salting salting of the table
+     */
+    public static String rowKey(long cellId, String suffix, CellSalting salting) {
+        return salting.keyPrefix(salting.bucket(cellId)) + rowKey(cellId, suffix);
+    }
+
+    /**
+     * Reads the cell id back from a row key, salted or not
+     *
+     * @throws IllegalArgumentException if the key doesn't start with a cell id prefix
+     */
+    public static long cellId(String rowKey) {
+        int start = rowKey.length() > SALT_LENGTH && rowKey.charAt(SALT_LENGTH - 1) == SEPARATOR ? SALT_LENGTH : 0;
+        Preconditions.checkArgument(rowKey.length() > start + PREFIX_LENGTH
+                && rowKey.charAt(start + PREFIX_LENGTH) == SEPARATOR, "Not a cell row key: %s", rowKey);
+        return Long.parseUnsignedLong(rowKey.substring(start, start + PREFIX_LENGTH), 16) ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the sign corrected, fixed width hex form of the cell id which starts its row keys
+     */
+    public static String prefix(long cellId) {
+        long unsigned = cellId ^ Long.MIN_VALUE;
+        char[] digits = new char[PREFIX_LENGTH];
+        for (int i = PREFIX_LENGTH - 1; i >= 0; i--) {
+            digits[i] = HEX_DIGITS[(int) (unsigned & 0xF)];
+            unsigned >>>= 4;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Generate condition for scanning the row keys of the given cell id ranges
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param ranges     merged ranges of leaf cell ids
+     * @param conditions additional built conditions which are ANDed with the key ranges
+     * @return built condition
+     */
+    public static QueryCondition condition(Connection connection, CellRanges ranges, QueryCondition... conditions) {
+        return condition(connection, ranges, CellSalting.NONE, conditions);
+    }
+
+    /**
+     * Generate condition for scanning the row keys of the given cell id ranges in a salted table, every range
+     * is one key range per salt bucket
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param ranges     merged ranges of leaf cell ids
+     * @param salting    salting of the table
+     * @param conditions additional built conditions which are ANDed with the key ranges
+     * @return built condition
+     */
+    public static QueryCondition condition(Connection connection, CellRanges ranges, CellSalting salting,
+                                           QueryCondition... conditions) {
+        QueryCondition condition = connection.newCondition();
+        if (conditions.length > 0) {
+            condition.and();
+        }
+
+        condition.or();
+        for (int i = 0; i < ranges.size(); i++) {
+            int bucket = salting.bucket(ranges.min(i), ranges.max(i));
+            int first = bucket == CellSalting.ALL_BUCKETS ? 0 : bucket;
+            int last = bucket == CellSalting.ALL_BUCKETS ? salting.getBuckets() - 1 : bucket;
+            for (int salt = first; salt <= last; salt++) {
+                String saltPrefix = salting.keyPrefix(salt);
+                condition.and().is(ID_COLUMN, QueryCondition.Op.GREATER_OR_EQUAL,
+                    lowerBound(saltPrefix, ranges.min(i)));
+                String upperBound = upperBound(saltPrefix, ranges.max(i));
+                if (upperBound != null) {
+                    condition.is(ID_COLUMN, QueryCondition.Op.LESS, upperBound);
+                }
+                condition.close();
+            }
+        }
+        condition.close();
+
+        if (conditions.length > 0) {
+            for (QueryCondition additional : conditions) {
+                condition.condition(additional);
+            }
+            condition.close();
+        }
+        return condition.build();
+    }
+
+    /**
+     * Generate JSON query for scanning the row keys of the given cell id ranges
+     *
+     * @param ranges merged ranges of leaf cell ids
+     */
+    public static String query(CellRanges ranges) {
+        return query(ranges, CellSalting.NONE);
+    }
+
+    /**
+     * Generate JSON query for scanning the row keys of the given cell id ranges in a salted table
+     *
+     * @param ranges  merged ranges of leaf cell ids
+     * @param salting salting of the table
+     */
+    public static String query(CellRanges ranges, CellSalting salting) {
+        StringBuilder query = new StringBuilder(12 + salting.lookups(ranges) * 80);
+        query.append("{\"$or\": [");
+        boolean firstRange = true;
+        for (int i = 0; i < ranges.size(); i++) {
+            int bucket = salting.bucket(ranges.min(i), ranges.max(i));
+            int first = bucket == CellSalting.ALL_BUCKETS ? 0 : bucket;
+            int last = bucket == CellSalting.ALL_BUCKETS ? salting.getBuckets() - 1 : bucket;
+            for (int salt = first; salt <= last; salt++) {
+                if (!firstRange) {
+                    query.append(',');
+                }
+                firstRange = false;
+                String saltPrefix = salting.keyPrefix(salt);
+                query.append("{\"$and\": [{\"$ge\":{\"" + ID_COLUMN + "\":\"")
+                    .append(lowerBound(saltPrefix, ranges.min(i))).append("\"}}");
+                String upperBound = upperBound(saltPrefix, ranges.max(i));
+                if (upperBound != null) {
+                    query.append(",{\"$lt\":{\"" + ID_COLUMN + "\":\"").append(upperBound).append("\"}}");
+                }
+                query.append("]}");
+            }
+        }
+        return query.append("]}").toString();
+    }
+
+    /**
+     * Scans the row keys of the ranges in the store, for tables keyed by {@link #rowKey(long, String)}
+     *
+     * @param connection OJAI connection which creates the queries
+     * @param conditions additional built conditions which are ANDed with the key ranges
+     */
+    public static RangeSource rangeSource(Connection connection, DocumentStore store, QueryCondition... conditions) {
+        return rangeSource(connection, store, CellSalting.NONE, conditions);
+    }
+
+    /**
+     * Scans the row keys of the ranges in the store, for tables keyed by
+     * {@link #rowKey(long, String, CellSalting)}
+     *
+     * @param connection OJAI connection which creates the queries
+     * @param salting    salting of the table
+     * @param conditions additional built conditions which are ANDed with the key ranges
+     */
+    public static RangeSource rangeSource(Connection connection, DocumentStore store, CellSalting salting,
+                                          QueryCondition... conditions) {
+        return (ranges, limit) -> {
+            Query query = connection.newQuery().where(condition(connection, ranges, salting, conditions));
+            if (limit != Long.MAX_VALUE) {
+                query.limit(limit);
+            }
+            return store.findQuery(query.build());
+        };
+    }
+
+    /**
+     * Every key of the cell sorts after its bare prefix
+     */
+    static String lowerBound(String saltPrefix, long min) {
+        return saltPrefix + prefix(min);
+    }
+
+    /**
+     * Every key of the cell sorts before the prefix of the next id, which is never a leaf cell. After the last
+     * cell id the keys of a bucket end before the next character after the separator, and the keys of an
+     * unsalted table don't end at all, so there is no bound.
+     */
+    static String upperBound(String saltPrefix, long max) {
+        if (max != Long.MAX_VALUE) {
+            return saltPrefix + prefix(max + 1);
+        }
+        if (saltPrefix.isEmpty()) {
+            return null;
+        }
+        return saltPrefix.substring(0, SALT_LENGTH - 1) + (char) (SEPARATOR + 1);
+    }
+}
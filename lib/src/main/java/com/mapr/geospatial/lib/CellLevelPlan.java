@@ -0,0 +1,169 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.primitives.Longs;
+import org.ojai.store.Connection;
+import org.ojai.store.QueryCondition;
+
+/**
+ * Covering expressed as equality and {@code IN} predicates of parent cell id columns plus the leaf ranges
+ * which no parent column expresses, built by {@link CellLevelPlanner}.
+ * <p>
+ * The predicates are ORed, a document matches when its parent id at one of the levels is among the values
+ * of that level or its leaf id is in one of the ranges.
+ */
+public final class CellLevelPlan {
+
+    private final String cellIdColumn;
+    private final int[] levels;
+    private final long[][] values;
+    private final CellRanges leafRanges;
+    private final boolean exact;
+
+    CellLevelPlan(String cellIdColumn, int[] levels, long[][] values, CellRanges leafRanges, boolean exact) {
+        this.cellIdColumn = cellIdColumn;
+        this.levels = levels;
+        this.values = values;
+        this.leafRanges = leafRanges;
+        this.exact = exact;
+    }
+
+    /**
+     * @return levels of the parent columns the plan may use, coarsest first
+     */
+    public int[] getLevels() {
+        return levels.clone();
+    }
+
+    /**
+     * @return sorted parent cell ids matched in the column of the level, empty when the column is not used
+     */
+    public long[] getValues(int level) {
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == level) {
+                return values[i].clone();
+            }
+        }
+        return new long[0];
+    }
+
+    /**
+     * @return ranges matched in the leaf cell id column
+     */
+    public CellRanges getLeafRanges() {
+        return leafRanges;
+    }
+
+    /**
+     * @return false when the plan selects more than the covering it was built from,
+     * see {@link CellLevelPlanner#planAtLevel(SpatialQuery, int)}
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return number of values of all {@code IN} and equality predicates
+     */
+    public int getValueCount() {
+        int count = 0;
+        for (long[] levelValues : values) {
+            count += levelValues.length;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of lookups the store makes: one per value and one per leaf range
+     */
+    public int getLookupCount() {
+        return getValueCount() + leafRanges.size();
+    }
+
+    /**
+     * @return number of leaf cells selected by the plan, about the scanned area for evenly spread points
+     */
+    public double getLeafCellCount() {
+        double count = 0;
+        for (int i = 0; i < levels.length; i++) {
+            // A cell at level L holds 4^(30 - L) leaf cells
+            count += values[i].length * Math.pow(4, 30 - levels[i]);
+        }
+        for (int i = 0; i < leafRanges.size(); i++) {
+            count += ((double) leafRanges.max(i) - leafRanges.min(i)) / 2 + 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return JSON query for searching the points selected by the plan
+     */
+    public String getQuery() {
+        StringBuilder query = new StringBuilder("{\"$or\": [");
+        boolean first = true;
+        for (int i = 0; i < levels.length; i++) {
+            if (values[i].length == 0) {
+                continue;
+            }
+            if (!first) {
+                query.append(',');
+            }
+            first = false;
+            String column = CellLevelPlanner.levelColumn(cellIdColumn, levels[i]);
+            if (values[i].length == 1) {
+                query.append("{\"$eq\":{\"").append(column).append("\":").append(values[i][0]).append("}}");
+            } else {
+                query.append("{\"$in\":{\"").append(column).append("\":[")
+                    .append(Longs.join(",", values[i])).append("]}}");
+            }
+        }
+        for (int i = 0; i < leafRanges.size(); i++) {
+            if (!first) {
+                query.append(',');
+            }
+            first = false;
+            query.append("{\"$and\": [{\"$ge\":{\"").append(cellIdColumn).append("\":").append(leafRanges.min(i))
+                .append("}},{\"$le\":{\"").append(cellIdColumn).append("\":").append(leafRanges.max(i))
+                .append("}}]}");
+        }
+        return query.append("]}").toString();
+    }
+
+    /**
+     * Generate condition for searching the points selected by the plan
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param conditions additional built conditions which are ANDed with the plan condition
+     * @return built condition
+     */
+    public QueryCondition getCondition(Connection connection, QueryCondition... conditions) {
+        QueryCondition condition = connection.newCondition();
+        if (conditions.length > 0) {
+            condition.and();
+        }
+
+        condition.or();
+        for (int i = 0; i < levels.length; i++) {
+            String column = CellLevelPlanner.levelColumn(cellIdColumn, levels[i]);
+            if (values[i].length == 1) {
+                condition.is(column, QueryCondition.Op.EQUAL, values[i][0]);
+            } else if (values[i].length > 1) {
+                condition.in(column, Longs.asList(values[i]));
+            }
+        }
+        for (int i = 0; i < leafRanges.size(); i++) {
+            condition.and()
+                .is(cellIdColumn, QueryCondition.Op.GREATER_OR_EQUAL, leafRanges.min(i))
+                .is(cellIdColumn, QueryCondition.Op.LESS_OR_EQUAL, leafRanges.max(i))
+                .close();
+        }
+        condition.close();
+
+        if (conditions.length > 0) {
+            for (QueryCondition additional : conditions) {
+                condition.condition(additional);
+            }
+            condition.close();
+        }
+        return condition.build();
+    }
+}
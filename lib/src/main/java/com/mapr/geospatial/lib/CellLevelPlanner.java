@@ -0,0 +1,207 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Rewrites the leaf ranges of a covering into equality and {@code IN} predicates of coarser cell id columns.
+ * <p>
+ * Documents enriched with parent cell ids, see {@link com.mapr.geospatial.lib.ingest.CellIdEnricher}, carry
+ * next to the leaf {@code cellId} a column per parent level, e.g. {@code cellId_8} and {@code cellId_12}.
+ * A covering cell at level {@code l} is then expressed exactly by the ids of its descendants at a configured
+ * level {@code L >= l} in the column of that level. The planner takes the coarsest such level, since it needs
+ * the fewest values, and keeps the leaf range of the cell when no configured level is close enough, i.e. the
+ * cell would expand to more than {@code maxValuesPerCell} values.
+ * <p>
+ * The covering is taken from the merged ranges of a {@link SpatialQuery}, which are split back into the
+ * largest aligned cells, so ranges of neighbouring covering cells may come back as one coarser cell.
+ * <p>
+ * Planners are immutable and can be shared between threads.
+ */
+public class CellLevelPlanner {
+
+    private static final int DEFAULT_MAX_VALUES_PER_CELL = 4;
+
+    private final int[] levels;
+    private final int maxValuesPerCell;
+
+    /**
+     * Creates planner which expands a cell only to the cells one level below it, at most 4 values
+     *
+     * @param levels levels of the parent cell id columns stored with the documents
+     */
+    public CellLevelPlanner(int... levels) {
+        this(levels, DEFAULT_MAX_VALUES_PER_CELL);
+    }
+
+    /**
+     * @param levels           levels of the parent cell id columns stored with the documents
+     * @param maxValuesPerCell largest number of values a single covering cell may expand to
+     */
+    public CellLevelPlanner(int[] levels, int maxValuesPerCell) {
+        Preconditions.checkArgument(maxValuesPerCell > 0, "maxValuesPerCell must be positive: %s", maxValuesPerCell);
+        for (int level : levels) {
+            checkLevel(level);
+        }
+        this.levels = Arrays.stream(levels).distinct().sorted().toArray();
+        this.maxValuesPerCell = maxValuesPerCell;
+    }
+
+    /**
+     * Returns name of the column with the parent cell id at the level, e.g. {@code cellId_12}
+     */
+    public static String levelColumn(String cellIdColumn, int level) {
+        return cellIdColumn + "_" + level;
+    }
+
+    /**
+     * Plans the covering of the query, every selected point is in the covering and every point of the
+     * covering is selected
+     */
+    public CellLevelPlan plan(SpatialQuery query) {
+        return plan(query.getColumnName(), query.getRanges());
+    }
+
+    /**
+     * Plans the ranges, every selected point is in the ranges and every point of the ranges is selected
+     *
+     * @param cellIdColumn name of the column which contains the leaf cell Id
+     * @param ranges       merged ranges of leaf cell ids
+     */
+    public CellLevelPlan plan(String cellIdColumn, CellRanges ranges) {
+        Values[] values = new Values[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            values[i] = new Values();
+        }
+        Values leafMins = new Values();
+        Values leafMaxs = new Values();
+
+        forEachCell(ranges, cellId -> {
+            int cellLevel = level(cellId);
+            int column = Arrays.binarySearch(levels, cellLevel);
+            column = column >= 0 ? column : -column - 1;
+            if (column < levels.length && expansion(cellLevel, levels[column]) <= maxValuesPerCell) {
+                values[column].addDescendants(cellId, levels[column]);
+            } else {
+                leafMins.add(CellIds.rangeMin(cellId));
+                leafMaxs.add(CellIds.rangeMax(cellId));
+            }
+        });
+        CellRanges leafRanges = CellRanges.merge(leafMins.ids, leafMaxs.ids, leafMins.size);
+        return new CellLevelPlan(cellIdColumn, levels, toArrays(values), leafRanges, true);
+    }
+
+    /**
+     * Plans the covering of the query with the column of one level only, to compare the level choices.
+     * Covering cells finer than the level are replaced by their parents, so the plan may select points
+     * outside of the covering, see {@link CellLevelPlan#isExact()}. Coarse covering cells expand to any
+     * number of values.
+     *
+     * @param level level of the column, need not be one of the configured levels
+     */
+    public CellLevelPlan planAtLevel(SpatialQuery query, int level) {
+        checkLevel(level);
+        Values values = new Values();
+        boolean[] exact = {true};
+        forEachCell(query.getRanges(), cellId -> {
+            if (level(cellId) <= level) {
+                values.addDescendants(cellId, level);
+            } else {
+                exact[0] = false;
+                values.addParent(CellIds.parent(cellId, level));
+            }
+        });
+        return new CellLevelPlan(query.getColumnName(), new int[]{level}, new long[][]{values.toArray()},
+            CellRanges.merge(new long[0], new long[0], 0), exact[0]);
+    }
+
+    /**
+     * Splits the merged ranges into the largest aligned cells, in the order of the ranges
+     */
+    static void forEachCell(CellRanges ranges, LongConsumer consumer) {
+        for (int range = 0; range < ranges.size(); range++) {
+            long min = ranges.min(range);
+            long max = ranges.max(range);
+            while (true) {
+                // A cell with lowest bit b starts at min when min - 1 is a multiple of 2b and ends 2b - 2 later.
+                // The range may span the sign change between faces 5 and 0, so its length is compared unsigned.
+                long lowestOnBit = 1L << (2 * S2CellId.MAX_LEVEL);
+                while (((min - 1) & (2 * lowestOnBit - 1)) != 0
+                    || Long.compareUnsigned(max - min, 2 * (lowestOnBit - 1)) < 0) {
+                    lowestOnBit >>>= 2;
+                }
+                long cellId = min + lowestOnBit - 1;
+                consumer.accept(cellId);
+                long cellMax = CellIds.rangeMax(cellId);
+                if (cellMax >= max) {
+                    break;
+                }
+                min = cellMax + 2;
+            }
+        }
+    }
+
+    static int level(long cellId) {
+        return S2CellId.MAX_LEVEL - Long.numberOfTrailingZeros(cellId) / 2;
+    }
+
+    private static long expansion(int cellLevel, int level) {
+        int depth = level - cellLevel;
+        return depth >= 31 ? Long.MAX_VALUE : 1L << (2 * depth);
+    }
+
+    private static long[][] toArrays(Values[] values) {
+        long[][] arrays = new long[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            arrays[i] = values[i].toArray();
+        }
+        return arrays;
+    }
+
+    private static void checkLevel(int level) {
+        Preconditions.checkArgument(0 <= level && level < S2CellId.MAX_LEVEL,
+            "Level must be in [0, %s): %s", S2CellId.MAX_LEVEL, level);
+    }
+
+    /**
+     * Growable list of the ids of one column, cells arrive in order so the ids stay sorted
+     */
+    private static final class Values {
+        private long[] ids = new long[16];
+        private int size;
+
+        void addDescendants(long cellId, int level) {
+            long lowestOnBit = 1L << (2 * (S2CellId.MAX_LEVEL - level));
+            long last = CellIds.rangeMax(cellId);
+            for (long id = CellIds.rangeMin(cellId) + lowestOnBit - 1; id <= last; id += 2 * lowestOnBit) {
+                add(id);
+                if (id > Long.MAX_VALUE - 2 * lowestOnBit) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Consecutive finer cells often share their parent
+         */
+        void addParent(long parent) {
+            if (size == 0 || ids[size - 1] != parent) {
+                add(parent);
+            }
+        }
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted, disjoint {@code [min, max]} ranges of leaf cell ids produced from a region covering.
+ * <p>
+ * Ranges are ordered by the signed value of the ids, which is the order the store uses for the
+ * {@code cellId} column. Ranges of neighbouring cells are merged, so every range is one lookup.
+ */
+public final class CellRanges {
+
+    private final long[] mins;
+    private final long[] maxs;
+
+    private CellRanges(long[] mins, long[] maxs) {
+        this.mins = mins;
+        this.maxs = maxs;
+    }
+
+    /**
+     * Builds merged ranges from the cells of a covering
+     *
+     * @param cellIds cells of the covering, in any order
+     * @return the fewest disjoint ranges containing the same leaf cells
+     */
+    public static CellRanges fromCovering(List<S2CellId> cellIds) {
+        int size = cellIds.size();
+        return fromCovering(cellIds, new long[size], new long[size]);
+    }
+
+    /**
+     * Builds merged ranges from the cells of a covering, using the arrays of at least the covering size
+     * as scratch space
+     */
+    static CellRanges fromCovering(List<S2CellId> cellIds, long[] mins, long[] maxs) {
+        int size = cellIds.size();
+        for (int i = 0; i < size; i++) {
+            long id = cellIds.get(i).id();
+            mins[i] = CellIds.rangeMin(id);
+            maxs[i] = CellIds.rangeMax(id);
+        }
+        return merge(mins, maxs, size);
+    }
+
+    /**
+     * Sorts and merges the first {@code size} ranges in place. The arrays are reused as scratch space.
+     */
+    static CellRanges merge(long[] mins, long[] maxs, int size) {
+        // Sorting the bounds separately keeps the union of the ranges intact: the i-th smallest
+        // min never exceeds the i-th smallest max, and every id is covered by as many ranges as before.
+        Arrays.sort(mins, 0, size);
+        Arrays.sort(maxs, 0, size);
+
+        int merged = 0;
+        for (int i = 0; i < size; i++) {
+            if (merged > 0 && touches(maxs[merged - 1], mins[i])) {
+                maxs[merged - 1] = Math.max(maxs[merged - 1], maxs[i]);
+            } else {
+                mins[merged] = mins[i];
+                maxs[merged] = maxs[i];
+                merged++;
+            }
+        }
+        return new CellRanges(Arrays.copyOf(mins, merged), Arrays.copyOf(maxs, merged));
+    }
+
+    /**
+     * Leaf cell ids are odd, so two ranges touch when no more than one (even) id lies between them.
+     */
+    private static boolean touches(long max, long nextMin) {
+        return max >= Long.MAX_VALUE - 2 || nextMin <= max + 2;
+    }
+
+    /**
+     * @return number of ranges
+     */
+    public int size() {
+        return mins.length;
+    }
+
+    /**
+     * @return the first leaf cell id of the range
+     */
+    public long min(int index) {
+        return mins[index];
+    }
+
+    /**
+     * @return the last leaf cell id of the range
+     */
+    public long max(int index) {
+        return maxs[index];
+    }
+
+    /**
+     * Checks whether the leaf cell id falls into one of the ranges
+     */
+    public boolean contains(long cellId) {
+        int index = Arrays.binarySearch(mins, cellId);
+        if (index >= 0) {
+            return true;
+        }
+        int candidate = -index - 2;
+        return candidate >= 0 && cellId <= maxs[candidate];
+    }
+
+    /**
+     * Returns ranges of the leaf cells which are in these ranges or in the other ones
+     */
+    public CellRanges union(CellRanges other) {
+        int size = mins.length + other.mins.length;
+        long[] unionMins = Arrays.copyOf(mins, size);
+        long[] unionMaxs = Arrays.copyOf(maxs, size);
+        System.arraycopy(other.mins, 0, unionMins, mins.length, other.mins.length);
+        System.arraycopy(other.maxs, 0, unionMaxs, maxs.length, other.maxs.length);
+        return merge(unionMins, unionMaxs, size);
+    }
+
+    /**
+     * Returns ranges of the leaf cells which are in these ranges but not in the other ones,
+     * e.g. the part of a larger covering which a smaller one has not scanned yet
+     */
+    public CellRanges subtract(CellRanges other) {
+        // Every range of the other ranges splits at most one range in two
+        long[] resultMins = new long[mins.length + other.mins.length];
+        long[] resultMaxs = new long[mins.length + other.mins.length];
+        int size = 0;
+
+        int first = 0;
+        for (int i = 0; i < mins.length; i++) {
+            long from = mins[i];
+            long to = maxs[i];
+            while (first < other.mins.length && other.maxs[first] < from) {
+                first++;
+            }
+            boolean covered = false;
+            int j = first;
+            for (; j < other.mins.length && other.mins[j] <= to; j++) {
+                if (other.mins[j] > from) {
+                    resultMins[size] = from;
+                    resultMaxs[size] = other.mins[j] - 2;
+                    size++;
+                }
+                if (other.maxs[j] >= to) {
+                    covered = true;
+                    break;
+                }
+                // Leaf cell ids are odd and the other max is below the odd max of this range, so no overflow
+                from = other.maxs[j] + 2;
+            }
+            if (!covered) {
+                resultMins[size] = from;
+                resultMaxs[size] = to;
+                size++;
+            }
+            first = j;
+        }
+        return new CellRanges(Arrays.copyOf(resultMins, size), Arrays.copyOf(resultMaxs, size));
+    }
+
+    /**
+     * Splits the ranges into consecutive groups with about the same number of ranges, e.g. for scanning
+     * them in parallel
+     *
+     * @param groups desired number of groups, fewer are returned when there are not enough ranges
+     */
+    public List<CellRanges> split(int groups) {
+        Preconditions.checkArgument(groups > 0, "groups must be positive: %s", groups);
+        int count = Math.max(1, Math.min(groups, mins.length));
+        List<CellRanges> result = new ArrayList<>(count);
+        for (int group = 0; group < count; group++) {
+            int from = (int) ((long) mins.length * group / count);
+            int to = (int) ((long) mins.length * (group + 1) / count);
+            result.add(new CellRanges(Arrays.copyOfRange(mins, from, to), Arrays.copyOfRange(maxs, from, to)));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CellRanges[");
+        for (int i = 0; i < mins.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('[').append(mins[i]).append(", ").append(maxs[i]).append(']');
+        }
+        return builder.append(']').toString();
+    }
+}
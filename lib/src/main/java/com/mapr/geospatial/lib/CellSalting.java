@@ -0,0 +1,158 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+
+/**
+ * Spreads the writes of a dense area over several key ranges by prefixing cell ids with a salt bucket.
+ * <p>
+ * Rows ordered by cell id put a burst of inserts from one city into one tablet. A salted table adds the
+ * bucket of every row before its cell id, in the {@link #saltColumn(String) salt column} indexed together
+ * with the cell id column, or in front of the {@link CellKeyDesign cell row key}. The bucket is a hash of
+ * the cell which contains the point at the salt level, so points of neighbouring cells at that level land
+ * in different buckets, while all points of one such cell stay together.
+ * <p>
+ * The price is paid by the reads: a covering range is looked up in every bucket, unless it lies within one
+ * cell of the salt level. {@link #NONE} has one bucket and no prefix, so salted and plain queries are the
+ * same.
+ */
+public final class CellSalting {
+
+    /**
+     * No salting, rows are keyed by their cell id alone
+     */
+    public static final CellSalting NONE = new CellSalting(1, 0);
+
+    /**
+     * Largest number of buckets, whose prefix still fits two hex digits
+     */
+    public static final int MAX_BUCKETS = 256;
+
+    /**
+     * Returned by {@link #bucket(long, long)} when a range spans several buckets
+     */
+    public static final int ALL_BUCKETS = -1;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int buckets;
+    private final int level;
+
+    private CellSalting(int buckets, int level) {
+        this.buckets = buckets;
+        this.level = level;
+    }
+
+    /**
+     * @param buckets number of salt buckets, 1 for no salting
+     * @param level   level of the cells which are hashed to the buckets, the finer, the more evenly a dense
+     *                area is spread, and the fewer ranges stay in one bucket
+     */
+    public static CellSalting of(int buckets, int level) {
+        Preconditions.checkArgument(0 < buckets && buckets <= MAX_BUCKETS,
+            "buckets must be in [1, %s]: %s", MAX_BUCKETS, buckets);
+        Preconditions.checkArgument(0 <= level && level <= S2CellId.MAX_LEVEL,
+            "level must be in [0, %s]: %s", S2CellId.MAX_LEVEL, level);
+        return buckets == 1 ? NONE : new CellSalting(buckets, level);
+    }
+
+    /**
+     * Returns the column which holds the bucket of the cell id column, e.g. {@code cellId_salt}
+     */
+    public static String saltColumn(String cellIdColumn) {
+        return cellIdColumn + "_salt";
+    }
+
+    /**
+     * @return number of salt buckets
+     */
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * @return level of the cells which are hashed to the buckets
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return whether there is more than one bucket
+     */
+    public boolean isSalted() {
+        return buckets > 1;
+    }
+
+    /**
+     * Returns the bucket of the leaf cell
+     */
+    public int bucket(long cellId) {
+        if (buckets == 1) {
+            return 0;
+        }
+        return (int) Long.remainderUnsigned(mix(CellIds.parent(cellId, level)), buckets);
+    }
+
+    /**
+     * Returns the bucket of all leaf cells of the range when they lie in one cell of the salt level,
+     * otherwise {@link #ALL_BUCKETS}
+     */
+    public int bucket(long min, long max) {
+        if (buckets == 1 || CellIds.parent(min, level) == CellIds.parent(max, level)) {
+            return bucket(min);
+        }
+        return ALL_BUCKETS;
+    }
+
+    /**
+     * Returns the number of lookups of the ranges, one per bucket a range is looked up in
+     */
+    public int lookups(CellRanges ranges) {
+        int lookups = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            lookups += bucket(ranges.min(i), ranges.max(i)) == ALL_BUCKETS ? buckets : 1;
+        }
+        return lookups;
+    }
+
+    /**
+     * Returns the prefix of the row keys of the bucket, two hex digits and {@link CellKeyDesign#SEPARATOR},
+     * or an empty string without salting
+     */
+    public String keyPrefix(int bucket) {
+        Preconditions.checkElementIndex(bucket, buckets, "bucket");
+        if (buckets == 1) {
+            return "";
+        }
+        return new String(new char[]{HEX_DIGITS[bucket >>> 4], HEX_DIGITS[bucket & 0xF], CellKeyDesign.SEPARATOR});
+    }
+
+    /**
+     * Finalizer of MurmurHash3, neighbouring cell ids land in unrelated buckets
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof CellSalting)) {
+            return false;
+        }
+        CellSalting salting = (CellSalting) other;
+        return buckets == salting.buckets && level == salting.level;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * buckets + level;
+    }
+
+    @Override
+    public String toString() {
+        return "CellSalting[buckets=" + buckets + ", level=" + level + "]";
+    }
+}
@@ -0,0 +1,162 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe, size and weight bounded LRU cache of polygon queries.
+ * <p>
+ * Assembling a polygon and covering it is by far the most expensive part of a polygon query, and the same
+ * administrative polygons are queried over and over. Entries are keyed by a 64-bit hash of the vertices,
+ * the number of vertices, the covering policy, the salting and the cell Id column. Every entry keeps a copy
+ * of its vertices, and a hit needs them to be equal, so polygons with colliding hashes never share a query;
+ * the later of them replaces the earlier one. The weight of an entry is its number of vertices plus its
+ * number of ranges, which follows the memory it holds.
+ * <p>
+ * Queries are computed outside of the lock, so two threads missing the same key at once may both compute it;
+ * the first stored query wins. A cache can be shared between helpers, a served query reports to the metrics
+ * of the helper which serves it.
+ */
+public class CoveringCache {
+
+    private final int maxEntries;
+    private final long maxWeight;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of cached polygons
+     * @param maxWeight  maximum total number of vertices and ranges of the cached polygons
+     */
+    public CoveringCache(int maxEntries, long maxWeight) {
+        Preconditions.checkArgument(maxEntries > 0, "maxEntries must be positive: %s", maxEntries);
+        Preconditions.checkArgument(maxWeight > 0, "maxWeight must be positive: %s", maxWeight);
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns cached query of the polygon or computes and caches it
+     */
+    SpatialQuery get(String columnName, CoveringPolicy policy, CellSalting salting, double[] lats, double[] lngs,
+                     Supplier<SpatialQuery> loader) {
+        Key key = new Key(columnName, policy, salting, lats.length, hash(lats, lngs));
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.hasVertices(lats, lngs)) {
+                hits.incrementAndGet();
+                return entry.query;
+            }
+        }
+        misses.incrementAndGet();
+
+        SpatialQuery query = loader.get();
+        // Build the query text once, so every hit gets it ready
+        query.getQuery();
+        Entry loaded = new Entry(query, lats.clone(), lngs.clone(), lats.length + query.getRanges().size());
+
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.hasVertices(lats, lngs)) {
+                return existing.query;
+            }
+            Entry replaced = entries.put(key, loaded);
+            if (replaced != null) {
+                weight -= replaced.weight;
+            }
+            weight += loaded.weight;
+            evict();
+        }
+        return query;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        // The just added entry is kept even if it alone is heavier than the limit
+        while (entries.size() > 1 && (entries.size() > maxEntries || weight > maxWeight)) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            weight -= entry.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all entries, the counters are kept
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * @return snapshot of the cache counters
+     */
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), weight);
+        }
+    }
+
+    private static long hash(double[] lats, double[] lngs) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < lats.length; i++) {
+            hash = mix(hash ^ Double.doubleToLongBits(lats[i]));
+            hash = mix(hash ^ Double.doubleToLongBits(lngs[i]));
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads every input bit over the whole hash
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    @Value
+    public static class Stats {
+        private long hits;
+        private long misses;
+        private long evictions;
+        private int size;
+        private long weight;
+    }
+
+    @Value
+    private static class Entry {
+        private SpatialQuery query;
+        private double[] lats;
+        private double[] lngs;
+        private long weight;
+
+        boolean hasVertices(double[] lats, double[] lngs) {
+            return Arrays.equals(this.lats, lats) && Arrays.equals(this.lngs, lngs);
+        }
+    }
+
+    @Value
+    private static class Key {
+        private String columnName;
+        private CoveringPolicy policy;
+        private CellSalting salting;
+        private int vertices;
+        private long hash;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2RegionCoverer;
+import lombok.Value;
+
+/**
+ * Settings of the {@link S2RegionCoverer} used to cover a search region.
+ * <p>
+ * More cells follow the region more closely, so less rows outside of the region are read,
+ * but every cell may become one more range scan.
+ */
+@Value
+public class CoveringOptions {
+
+    /**
+     * Coverer defaults, the most accurate level mod
+     */
+    public static final CoveringOptions DEFAULT = builder().build();
+
+    /**
+     * Desired maximum number of cells in the covering
+     */
+    private int maxCells;
+
+    /**
+     * Coarsest level of the cells in the covering
+     */
+    private int minLevel;
+
+    /**
+     * Finest level of the cells in the covering
+     */
+    private int maxLevel;
+
+    /**
+     * There is three types of zoom level (1, 2, 3). This levels specify level of accuracy.
+     * The 1 level is the most accurate, and 3 level is less accurate but it need less computations.
+     */
+    private int levelMod;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+            .maxCells(maxCells)
+            .minLevel(minLevel)
+            .maxLevel(maxLevel)
+            .levelMod(levelMod);
+    }
+
+    /**
+     * Applies the settings to the coverer
+     */
+    public void applyTo(S2RegionCoverer coverer) {
+        coverer.setMinLevel(minLevel);
+        coverer.setMaxLevel(maxLevel);
+        coverer.setLevelMod(levelMod);
+        coverer.setMaxCells(maxCells);
+    }
+
+    public static final class Builder {
+        private int maxCells = S2RegionCoverer.DEFAULT_MAX_CELLS;
+        private int minLevel = 0;
+        private int maxLevel = S2CellId.MAX_LEVEL;
+        private int levelMod = 1;
+
+        private Builder() {
+        }
+
+        public Builder maxCells(int maxCells) {
+            this.maxCells = maxCells;
+            return this;
+        }
+
+        public Builder minLevel(int minLevel) {
+            this.minLevel = minLevel;
+            return this;
+        }
+
+        public Builder maxLevel(int maxLevel) {
+            this.maxLevel = maxLevel;
+            return this;
+        }
+
+        public Builder levelMod(int levelMod) {
+            this.levelMod = levelMod;
+            return this;
+        }
+
+        public CoveringOptions build() {
+            Preconditions.checkArgument(maxCells > 0, "maxCells must be positive: %s", maxCells);
+            Preconditions.checkArgument(0 <= minLevel && minLevel <= maxLevel && maxLevel <= S2CellId.MAX_LEVEL,
+                "Levels must satisfy 0 <= minLevel <= maxLevel <= %s: %s, %s", S2CellId.MAX_LEVEL, minLevel, maxLevel);
+            Preconditions.checkArgument(1 <= levelMod && levelMod <= 3, "levelMod must be 1, 2 or 3: %s", levelMod);
+            return new CoveringOptions(maxCells, minLevel, maxLevel, levelMod);
+        }
+    }
+}
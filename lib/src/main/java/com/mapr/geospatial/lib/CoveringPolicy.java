@@ -0,0 +1,33 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.geometry.S2Region;
+
+/**
+ * Chooses the covering settings for a search region.
+ * <p>
+ * Policies are part of the {@link CoveringCache} key, so implementations which choose the same settings
+ * should be equal.
+ */
+public interface CoveringPolicy {
+
+    /**
+     * @return settings for covering the region
+     */
+    CoveringOptions optionsFor(S2Region region);
+
+    /**
+     * Covers every region with the same settings
+     */
+    static CoveringPolicy fixed(CoveringOptions options) {
+        return new FixedCoveringPolicy(options);
+    }
+
+    /**
+     * Picks the settings from the area and the shape of the region
+     *
+     * @see AdaptiveCoveringPolicy
+     */
+    static CoveringPolicy adaptive() {
+        return new AdaptiveCoveringPolicy();
+    }
+}
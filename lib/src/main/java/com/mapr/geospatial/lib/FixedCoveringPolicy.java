@@ -0,0 +1,28 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.geometry.S2Region;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Covers every region with the same settings. Policies with equal settings are equal,
+ * so they share entries of a {@link CoveringCache}.
+ */
+@EqualsAndHashCode
+final class FixedCoveringPolicy implements CoveringPolicy {
+
+    private final CoveringOptions options;
+
+    FixedCoveringPolicy(CoveringOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public CoveringOptions optionsFor(S2Region region) {
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return "fixed " + options;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2Point;
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the K documents nearest to a point by searching caps of growing radius around it.
+ * <p>
+ * Every round covers a larger cap and scans only the ranges which no previous round scanned, so no row is
+ * read twice. The K nearest documents seen so far are kept in a bounded max-heap of exact great-circle
+ * distances. Every point closer than the radius lies in the scanned covering, so the search stops as soon as
+ * the K-th distance is not larger than the radius. Once K documents are known, the next radius is the K-th
+ * distance, which makes that round the last one; before that the radius doubles.
+ * <p>
+ * Searches are immutable and can be shared between threads when the range source can.
+ */
+public class NearestNeighborSearch {
+
+    private static final double DEFAULT_INITIAL_RADIUS_IN_METERS = 1000;
+
+    private static final Comparator<Neighbor> FARTHEST_FIRST =
+        Comparator.comparingDouble(Neighbor::getDistanceInMeters).reversed();
+
+    private final S2Helper helper;
+    private final RangeSource source;
+    private final String columnName;
+    private final double initialRadius;
+    private final double maxRadius;
+
+    /**
+     * Creates search which starts at 1 km and may grow over the whole earth
+     *
+     * @param helper     covers the searched caps
+     * @param source     store of the documents
+     * @param columnName name of the column which contains cell Id
+     */
+    public NearestNeighborSearch(S2Helper helper, RangeSource source, String columnName) {
+        this(helper, source, columnName, DEFAULT_INITIAL_RADIUS_IN_METERS, S2Helper.earthRadiansToMeters(Math.PI));
+    }
+
+    /**
+     * @param helper                covers the searched caps
+     * @param source                store of the documents
+     * @param columnName            name of the column which contains cell Id
+     * @param initialRadiusInMeters radius of the first round, about the expected distance of the K-th neighbour
+     * @param maxRadiusInMeters     the search gives up beyond this radius and returns fewer neighbours
+     */
+    public NearestNeighborSearch(S2Helper helper, RangeSource source, String columnName,
+                                 double initialRadiusInMeters, double maxRadiusInMeters) {
+        Preconditions.checkArgument(initialRadiusInMeters > 0,
+            "initialRadiusInMeters must be positive: %s", initialRadiusInMeters);
+        Preconditions.checkArgument(maxRadiusInMeters >= initialRadiusInMeters,
+            "maxRadiusInMeters must not be smaller than initialRadiusInMeters: %s", maxRadiusInMeters);
+        this.helper = helper;
+        this.source = source;
+        this.columnName = columnName;
+        this.initialRadius = initialRadiusInMeters;
+        this.maxRadius = maxRadiusInMeters;
+    }
+
+    /**
+     * Finds the documents nearest to the center
+     *
+     * @param center center of the search
+     * @param k      number of neighbours
+     * @return the nearest documents, closest first
+     */
+    public NearestNeighbors find(GPoint center, int k) {
+        Preconditions.checkArgument(k > 0, "k must be positive: %s", k);
+        S2Point centerPoint = S2LatLng.fromDegrees(center.getLatitude(), center.getLongitude()).toPoint();
+
+        PriorityQueue<Neighbor> nearest = new PriorityQueue<>(k, FARTHEST_FIRST);
+        CellRanges scanned = null;
+        long rowsRead = 0;
+        int rounds = 0;
+        double radius = initialRadius;
+
+        while (true) {
+            CellRanges covering = helper.getSpatialQueryForCircle(columnName, center, radius).getRanges();
+            CellRanges ring = scanned == null ? covering : covering.subtract(scanned);
+            scanned = scanned == null ? covering : scanned.union(covering);
+            rounds++;
+
+            if (ring.size() > 0) {
+                try (DocumentStream stream = source.find(ring, Long.MAX_VALUE)) {
+                    for (Document document : stream) {
+                        rowsRead++;
+                        double distance = distanceInMeters(centerPoint, document.getLong(columnName));
+                        if (nearest.size() < k) {
+                            nearest.add(new Neighbor(document, distance));
+                        } else if (distance < nearest.peek().getDistanceInMeters()) {
+                            nearest.poll();
+                            nearest.add(new Neighbor(document, distance));
+                        }
+                    }
+                }
+            }
+
+            boolean complete = nearest.size() == k && nearest.peek().getDistanceInMeters() <= radius;
+            if (complete || radius >= maxRadius) {
+                break;
+            }
+            radius = Math.min(maxRadius, nearest.size() == k ? nearest.peek().getDistanceInMeters() : 2 * radius);
+        }
+
+        List<Neighbor> neighbors = new ArrayList<>(nearest);
+        neighbors.sort(FARTHEST_FIRST.reversed());
+        return new NearestNeighbors(neighbors, rowsRead, rounds, radius);
+    }
+
+    /**
+     * Great-circle distance between the center and the center of the leaf cell
+     */
+    static double distanceInMeters(S2Point center, long cellId) {
+        return S2Helper.earthRadiansToMeters(center.angle(new S2CellId(cellId).toPoint()));
+    }
+}
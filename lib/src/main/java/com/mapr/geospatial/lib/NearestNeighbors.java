@@ -0,0 +1,32 @@
+package com.mapr.geospatial.lib;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Result of a {@link NearestNeighborSearch}.
+ */
+@Value
+public class NearestNeighbors {
+
+    /**
+     * Nearest documents, closest first. Fewer than requested when the search reached its maximum radius.
+     */
+    private List<Neighbor> neighbors;
+
+    /**
+     * Number of documents read from the store over all rounds
+     */
+    private long rowsRead;
+
+    /**
+     * Number of expanding rounds, every round scans only the ranges not scanned before
+     */
+    private int rounds;
+
+    /**
+     * Radius of the last searched cap
+     */
+    private double searchedRadiusInMeters;
+}
@@ -0,0 +1,13 @@
+package com.mapr.geospatial.lib;
+
+import lombok.Value;
+import org.ojai.Document;
+
+/**
+ * Document found by a nearest neighbour search with its distance from the center.
+ */
+@Value
+public class Neighbor {
+    private Document document;
+    private double distanceInMeters;
+}
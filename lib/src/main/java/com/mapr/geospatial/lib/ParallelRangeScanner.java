@@ -0,0 +1,136 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans the ranges of a covering as several concurrent range scans instead of one {@code $or} query.
+ * <p>
+ * The ranges are split into at most {@code parallelism} groups of consecutive ranges, every group is one
+ * {@link RangeSource#find(CellRanges, long)} call running on the executor. Documents of all groups are
+ * merged through a bounded queue into one {@link RangeScan}, in no particular order; a consumer slower than
+ * the scans blocks them instead of buffering the results.
+ * <p>
+ * Scanners are immutable and can be shared between threads. A scanner created without an executor owns its
+ * pool and shuts it down on {@link #close()}; an executor passed in is left to the caller.
+ */
+public class ParallelRangeScanner implements AutoCloseable {
+
+    /**
+     * Default maximum number of threads of {@link #defaultExecutor()}
+     */
+    public static final int DEFAULT_MAX_THREADS = 64;
+
+    private static final long IDLE_SECONDS = 60;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    /**
+     * @param executor      runs the range scans, one task per group
+     * @param parallelism   maximum number of concurrent range scans of one query
+     * @param queueCapacity maximum number of documents read from the store but not yet consumed
+     */
+    public ParallelRangeScanner(ExecutorService executor, int parallelism, int queueCapacity) {
+        this(executor, false, parallelism, queueCapacity);
+    }
+
+    /**
+     * Creates scanner which owns a {@link #defaultExecutor(int)} of at least {@link #DEFAULT_MAX_THREADS}
+     * threads, with a queue of 1024 documents per concurrent scan
+     */
+    public ParallelRangeScanner(int parallelism) {
+        this(defaultExecutor(Math.max(parallelism, DEFAULT_MAX_THREADS)), true, parallelism, 1024 * parallelism);
+    }
+
+    private ParallelRangeScanner(ExecutorService executor, boolean ownsExecutor, int parallelism,
+                                 int queueCapacity) {
+        Preconditions.checkNotNull(executor, "executor must be set");
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be positive: %s", queueCapacity);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns {@link #defaultExecutor(int)} of {@link #DEFAULT_MAX_THREADS} threads
+     */
+    public static ExecutorService defaultExecutor() {
+        return defaultExecutor(DEFAULT_MAX_THREADS);
+    }
+
+    /**
+     * Returns executor with a virtual thread per task when the JVM supports them, otherwise a pool of at
+     * most {@code maxThreads} daemon threads, which end after a minute of idling. Scans mostly wait for the
+     * store, so the pool is larger than the cores; groups beyond it wait for a free thread.
+     */
+    public static ExecutorService defaultExecutor(int maxThreads) {
+        Preconditions.checkArgument(maxThreads > 0, "maxThreads must be positive: %s", maxThreads);
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "range-scan-" + THREADS.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * Starts scanning all ranges
+     *
+     * @param source store of the documents
+     * @param ranges merged ranges of the covering, see {@link SpatialQuery#getRanges()}
+     * @return stream of the found documents, must be closed
+     */
+    public RangeScan scan(RangeSource source, CellRanges ranges) {
+        return scan(source, ranges, Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts scanning the ranges until {@code limit} documents are found
+     *
+     * @param source store of the documents
+     * @param ranges merged ranges of the covering, see {@link SpatialQuery#getRanges()}
+     * @param limit  maximum number of returned documents, every scan stops after this many
+     * @return stream of the found documents, must be closed
+     */
+    public RangeScan scan(RangeSource source, CellRanges ranges, long limit) {
+        Preconditions.checkArgument(limit > 0, "limit must be positive: %s", limit);
+        List<CellRanges> groups = ranges.split(parallelism);
+        RangeScan scan = new RangeScan(groups.size(), queueCapacity, limit);
+        for (CellRanges group : groups) {
+            scan.start(executor, () -> source.find(group, limit));
+        }
+        return scan;
+    }
+
+    /**
+     * Shuts down the executor when the scanner owns it, running scans are finished
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
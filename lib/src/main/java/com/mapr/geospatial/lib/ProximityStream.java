@@ -0,0 +1,165 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2LatLng;
+import com.google.common.geometry.S2Point;
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Documents within a radius of a point, closest first, found ring by ring.
+ * <p>
+ * The circle is searched as growing caps, starting at a sixteenth of the radius, and every cap scans only the
+ * ranges the smaller caps have not scanned. Every point closer than the radius of a scanned cap lies in its
+ * covering, so once a cap is scanned all pending candidates up to its radius are final and are returned in
+ * order of their exact distance. The first results arrive after the first small ring, and only candidates of
+ * the current ring which are not returned yet are held in memory.
+ * <p>
+ * Caps double their radius as long as the ring between two caps is at most the given share of the circle's
+ * area; further out the rings have exactly that area. So for evenly spread points at most about
+ * {@code 1 / rings} of the results, plus the cells sticking out of the ring, are held at once, at the cost
+ * of about {@code rings} scans.
+ * <p>
+ * Nothing is read before the first call of {@link Iterator#hasNext()}. The stream is consumed by one thread.
+ */
+public final class ProximityStream implements Iterable<Neighbor> {
+
+    private static final int FIRST_RING_DIVISOR = 16;
+
+    /**
+     * Default number of rings the circle's area is split into, a ring holds at most a sixteenth of the results
+     */
+    public static final int DEFAULT_RINGS = 16;
+
+    private static final Comparator<Neighbor> NEAREST_FIRST =
+        Comparator.comparingDouble(Neighbor::getDistanceInMeters);
+
+    private final S2Helper helper;
+    private final RangeSource source;
+    private final String columnName;
+    private final GPoint center;
+    private final S2Point centerPoint;
+    private final double radius;
+    private final int rings;
+
+    private final PriorityQueue<Neighbor> pending = new PriorityQueue<>(NEAREST_FIRST);
+    private CellRanges scanned;
+    private double scannedRadius;
+    private long rowsRead;
+    private int peakPending;
+
+    /**
+     * @param helper         covers the rings
+     * @param source         store of the documents
+     * @param columnName     name of the column which contains cell Id
+     * @param center         center of the circle
+     * @param radiusInMeters radius of the circle
+     */
+    public ProximityStream(S2Helper helper, RangeSource source, String columnName, GPoint center,
+                           double radiusInMeters) {
+        this(helper, source, columnName, center, radiusInMeters, DEFAULT_RINGS);
+    }
+
+    /**
+     * @param helper         covers the rings
+     * @param source         store of the documents
+     * @param columnName     name of the column which contains cell Id
+     * @param center         center of the circle
+     * @param radiusInMeters radius of the circle
+     * @param rings          number of equal parts of the circle's area no ring is larger than, 1 only doubles
+     */
+    public ProximityStream(S2Helper helper, RangeSource source, String columnName, GPoint center,
+                           double radiusInMeters, int rings) {
+        Preconditions.checkArgument(radiusInMeters > 0, "radiusInMeters must be positive: %s", radiusInMeters);
+        Preconditions.checkArgument(rings > 0, "rings must be positive: %s", rings);
+        this.helper = helper;
+        this.source = source;
+        this.columnName = columnName;
+        this.center = center;
+        this.centerPoint = S2LatLng.fromDegrees(center.getLatitude(), center.getLongitude()).toPoint();
+        this.radius = radiusInMeters;
+        this.rings = rings;
+    }
+
+    /**
+     * @return number of documents read from the store so far, including the ones outside of the circle
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * @return largest number of candidates held in memory at once so far
+     */
+    public int getPeakPending() {
+        return peakPending;
+    }
+
+    @Override
+    public Iterator<Neighbor> iterator() {
+        return new Iterator<Neighbor>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public Neighbor next() {
+                if (!advance()) {
+                    throw new NoSuchElementException();
+                }
+                return pending.poll();
+            }
+        };
+    }
+
+    private boolean advance() {
+        while (true) {
+            Neighbor nearest = pending.peek();
+            if (nearest != null && nearest.getDistanceInMeters() <= scannedRadius) {
+                return true;
+            }
+            if (scannedRadius >= radius) {
+                return false;
+            }
+            scanRing(nextRadius());
+        }
+    }
+
+    /**
+     * Doubles the radius unless the ring would take more than its share of the circle's area
+     */
+    private double nextRadius() {
+        if (scannedRadius == 0) {
+            return radius / FIRST_RING_DIVISOR;
+        }
+        double equalArea = Math.sqrt(scannedRadius * scannedRadius + radius * radius / rings);
+        return Math.min(radius, Math.min(2 * scannedRadius, equalArea));
+    }
+
+    private void scanRing(double ringRadius) {
+        CellRanges covering = helper.getSpatialQueryForCircle(columnName, center, ringRadius).getRanges();
+        CellRanges ring = scanned == null ? covering : covering.subtract(scanned);
+        scanned = scanned == null ? covering : scanned.union(covering);
+
+        if (ring.size() > 0) {
+            try (DocumentStream stream = source.find(ring, Long.MAX_VALUE)) {
+                for (Document document : stream) {
+                    rowsRead++;
+                    double distance = NearestNeighborSearch.distanceInMeters(centerPoint, document.getLong(columnName));
+                    // The covering cells stick out of the circle
+                    if (distance <= radius) {
+                        pending.add(new Neighbor(document, distance));
+                    }
+                }
+            }
+        }
+        peakPending = Math.max(peakPending, pending.size());
+        scannedRadius = ringRadius;
+    }
+}
@@ -0,0 +1,144 @@
+package com.mapr.geospatial.lib;
+
+import org.ojai.Document;
+import org.ojai.DocumentStream;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Documents of the concurrent range scans started by {@link ParallelRangeScanner}, as one stream.
+ * <p>
+ * The stream is consumed by one thread. Closing it, or reaching the limit, cancels the scans which
+ * are still running. The failure of the first failed scan is rethrown by {@link Iterator#hasNext()},
+ * which cancels the other scans.
+ */
+public final class RangeScan implements Iterable<Document>, AutoCloseable {
+
+    /**
+     * Put by every scan when it is done, successfully or not
+     */
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final int scans;
+    private final long limit;
+
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+
+    private int finishedScans;
+    private long returned;
+    private Document next;
+
+    RangeScan(int scans, int queueCapacity, long limit) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.scans = scans;
+        this.limit = limit;
+    }
+
+    void start(ExecutorService executor, Supplier<DocumentStream> scan) {
+        futures.add(executor.submit(() -> run(scan)));
+    }
+
+    private void run(Supplier<DocumentStream> scan) {
+        try {
+            try (DocumentStream stream = scan.get()) {
+                for (Document document : stream) {
+                    if (cancelled) {
+                        return;
+                    }
+                    queue.put(document);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+            if (!cancelled) {
+                queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            // Cancelled while the queue was full
+        }
+    }
+
+    /**
+     * Stops the running scans, documents which are not consumed yet are dropped
+     */
+    @Override
+    public void close() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+        queue.clear();
+    }
+
+    @Override
+    public Iterator<Document> iterator() {
+        return new Iterator<Document>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public Document next() {
+                if (!advance()) {
+                    throw new NoSuchElementException();
+                }
+                Document document = next;
+                next = null;
+                returned++;
+                return document;
+            }
+        };
+    }
+
+    private boolean advance() {
+        if (next != null) {
+            return true;
+        }
+        while (!cancelled && returned < limit && finishedScans < scans) {
+            checkFailure();
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for range scans", e);
+            }
+            if (item == END) {
+                finishedScans++;
+            } else {
+                next = (Document) item;
+                return true;
+            }
+        }
+        checkFailure();
+        close();
+        return false;
+    }
+
+    private void checkFailure() {
+        Throwable e = failure.get();
+        if (e != null) {
+            close();
+            throw new IllegalStateException("Range scan failed", e);
+        }
+    }
+}
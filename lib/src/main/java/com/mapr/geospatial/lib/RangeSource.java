@@ -0,0 +1,79 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.collect.ObjectArrays;
+import org.ojai.DocumentStream;
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentStore;
+import org.ojai.store.Query;
+import org.ojai.store.QueryCondition;
+
+import java.util.Arrays;
+
+/**
+ * Finds the documents whose cell id falls into given ranges, one range scan per call.
+ * <p>
+ * {@link ParallelRangeScanner} calls it from several threads at once, so implementations must be thread-safe.
+ */
+public interface RangeSource {
+
+    /**
+     * Finds the documents in the ranges
+     *
+     * @param ranges merged ranges of leaf cell ids
+     * @param limit  maximum number of documents the caller reads, {@code Long.MAX_VALUE} for all of them
+     */
+    DocumentStream find(CellRanges ranges, long limit);
+
+    /**
+     * Scans the ranges in the store with {@link DocumentStore#findQuery(Query)}
+     *
+     * @param connection OJAI connection which creates the queries
+     * @param columnName name of the column which contains cell Id
+     * @param conditions additional built conditions which are ANDed with the ranges
+     */
+    static RangeSource of(Connection connection, DocumentStore store, String columnName,
+                          QueryCondition... conditions) {
+        return of(connection, store, columnName, new String[0], conditions);
+    }
+
+    /**
+     * Scans the ranges in the store with {@link DocumentStore#findQuery(Query)}, fetching only the given fields
+     *
+     * @param connection OJAI connection which creates the queries
+     * @param columnName name of the column which contains cell Id, always fetched
+     * @param fields     fields of the found documents, e.g. {@code RowMapper.getFields()}, all when empty
+     * @param conditions additional built conditions which are ANDed with the ranges
+     */
+    static RangeSource of(Connection connection, DocumentStore store, String columnName, String[] fields,
+                          QueryCondition... conditions) {
+        return of(connection, store, columnName, CellSalting.NONE, fields, conditions);
+    }
+
+    /**
+     * Scans the ranges in a salted store with {@link DocumentStore#findQuery(Query)}, every range in all
+     * salt buckets
+     *
+     * @param connection OJAI connection which creates the queries
+     * @param columnName name of the column which contains cell Id, always fetched
+     * @param salting    salting of the cell id column, the same the rows were written with
+     * @param fields     fields of the found documents, e.g. {@code RowMapper.getFields()}, all when empty
+     * @param conditions additional built conditions which are ANDed with the ranges
+     */
+    static RangeSource of(Connection connection, DocumentStore store, String columnName, CellSalting salting,
+                          String[] fields, QueryCondition... conditions) {
+        String[] projection = fields.length == 0 || Arrays.asList(fields).contains(columnName)
+            ? fields.clone()
+            : ObjectArrays.concat(fields, columnName);
+        return (ranges, limit) -> {
+            Query query = connection.newQuery()
+                .where(S2Helper.generateCondition(connection, columnName, salting, ranges, conditions));
+            if (projection.length > 0) {
+                query.select(projection);
+            }
+            if (limit != Long.MAX_VALUE) {
+                query.limit(limit);
+            }
+            return store.findQuery(query.build());
+        };
+    }
+}
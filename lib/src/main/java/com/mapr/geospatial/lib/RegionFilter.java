@@ -0,0 +1,212 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.collect.Iterables;
+import com.google.common.geometry.R1Interval;
+import com.google.common.geometry.S1Interval;
+import com.google.common.geometry.S2Cap;
+import com.google.common.geometry.S2CellId;
+import com.google.common.geometry.S2LatLngRect;
+import com.google.common.geometry.S2Point;
+import com.google.common.geometry.S2Polygon;
+import com.google.common.geometry.S2Region;
+import org.ojai.Document;
+
+/**
+ * Exact test of candidates found through a covering against the searched region.
+ * <p>
+ * A covering always contains the region, so a range query returns points which are inside of the covering
+ * cells but outside of the region. The filter removes them. Testing latitude/longitude of circles and
+ * rectangles doesn't allocate; polygons allocate one {@link S2Point} for candidates inside of their bound.
+ * <p>
+ * When the filter knows the interior covering of the region, cell ids inside of the interior cells are
+ * accepted without any geometry test, only cells along the boundary are tested exactly.
+ * <p>
+ * Filters are immutable and can be shared between threads.
+ */
+public abstract class RegionFilter {
+
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180;
+
+    /**
+     * Creates filter for the region
+     *
+     * @throws IllegalArgumentException if the region is not a cap, rectangle or polygon
+     */
+    public static RegionFilter of(S2Region region) {
+        if (region instanceof S2Cap) {
+            return new CapFilter((S2Cap) region);
+        }
+        if (region instanceof S2LatLngRect) {
+            return new RectFilter((S2LatLngRect) region);
+        }
+        if (region instanceof S2Polygon) {
+            return new PolygonFilter((S2Polygon) region);
+        }
+        throw new IllegalArgumentException("Unsupported region " + region.getClass().getName());
+    }
+
+    /**
+     * Creates filter for the region which accepts cells of the interior covering without an exact test
+     *
+     * @param interior merged ranges of the interior covering of the region
+     * @throws IllegalArgumentException if the region is not a cap, rectangle or polygon
+     */
+    public static RegionFilter of(S2Region region, CellRanges interior) {
+        return new InteriorFilter(of(region), interior);
+    }
+
+    /**
+     * Checks whether the point is inside of the region
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     */
+    public abstract boolean contains(double lat, double lng);
+
+    /**
+     * Checks whether the center of the leaf cell, stored in the cell Id column, is inside of the region
+     */
+    public boolean containsCell(long cellId) {
+        return contains(new S2CellId(cellId).toPoint());
+    }
+
+    abstract boolean contains(S2Point point);
+
+    /**
+     * Lazily skips the documents outside of the region while the stream is iterated
+     *
+     * @param documents    documents found by the covering query
+     * @param cellIdColumn name of the column which contains cell Id
+     */
+    public Iterable<Document> filter(Iterable<Document> documents, String cellIdColumn) {
+        return Iterables.filter(documents, document -> containsCell(document.getLong(cellIdColumn)));
+    }
+
+    /**
+     * Lazily skips the documents outside of the region while the stream is iterated
+     *
+     * @param documents     documents found by the covering query
+     * @param latitudePath  path of the latitude in degrees, e.g. {@code value.loc.coordinates[0].latitude}
+     * @param longitudePath path of the longitude in degrees
+     */
+    public Iterable<Document> filter(Iterable<Document> documents, String latitudePath, String longitudePath) {
+        return Iterables.filter(documents,
+            document -> contains(document.getDouble(latitudePath), document.getDouble(longitudePath)));
+    }
+
+    private static S2Point toPoint(double latRadians, double lngRadians) {
+        // Same computation as S2LatLng.toPoint()
+        double cosLat = Math.cos(latRadians);
+        return new S2Point(Math.cos(lngRadians) * cosLat, Math.sin(lngRadians) * cosLat, Math.sin(latRadians));
+    }
+
+    private static final class InteriorFilter extends RegionFilter {
+        private final RegionFilter exact;
+        private final CellRanges interior;
+
+        InteriorFilter(RegionFilter exact, CellRanges interior) {
+            this.exact = exact;
+            this.interior = interior;
+        }
+
+        @Override
+        public boolean contains(double lat, double lng) {
+            return exact.contains(lat, lng);
+        }
+
+        @Override
+        public boolean containsCell(long cellId) {
+            return interior.contains(cellId) || exact.containsCell(cellId);
+        }
+
+        @Override
+        boolean contains(S2Point point) {
+            return exact.contains(point);
+        }
+    }
+
+    private static final class CapFilter extends RegionFilter {
+        private final S2Cap cap;
+        private final double axisX;
+        private final double axisY;
+        private final double axisZ;
+        private final double maxChordSquared;
+
+        CapFilter(S2Cap cap) {
+            this.cap = cap;
+            S2Point axis = cap.axis();
+            this.axisX = axis.get(0);
+            this.axisY = axis.get(1);
+            this.axisZ = axis.get(2);
+            // S2Cap.contains(p) compares the squared chord between the axis and the point with 2 * height
+            this.maxChordSquared = 2 * cap.height();
+        }
+
+        @Override
+        public boolean contains(double lat, double lng) {
+            double latRadians = lat * DEGREES_TO_RADIANS;
+            double lngRadians = lng * DEGREES_TO_RADIANS;
+            double cosLat = Math.cos(latRadians);
+            double dx = axisX - Math.cos(lngRadians) * cosLat;
+            double dy = axisY - Math.sin(lngRadians) * cosLat;
+            double dz = axisZ - Math.sin(latRadians);
+            return dx * dx + dy * dy + dz * dz <= maxChordSquared;
+        }
+
+        @Override
+        boolean contains(S2Point point) {
+            return cap.contains(point);
+        }
+    }
+
+    private static final class RectFilter extends RegionFilter {
+        private final S2LatLngRect rect;
+        private final R1Interval lat;
+        private final S1Interval lng;
+
+        RectFilter(S2LatLngRect rect) {
+            this.rect = rect;
+            this.lat = rect.lat();
+            this.lng = rect.lng();
+        }
+
+        @Override
+        public boolean contains(double lat, double lng) {
+            return this.lat.contains(lat * DEGREES_TO_RADIANS) && this.lng.contains(lng * DEGREES_TO_RADIANS);
+        }
+
+        @Override
+        boolean contains(S2Point point) {
+            return rect.contains(point);
+        }
+    }
+
+    private static final class PolygonFilter extends RegionFilter {
+        private final S2Polygon polygon;
+        private final R1Interval boundLat;
+        private final S1Interval boundLng;
+
+        PolygonFilter(S2Polygon polygon) {
+            this.polygon = polygon;
+            S2LatLngRect bound = polygon.getRectBound();
+            this.boundLat = bound.lat();
+            this.boundLng = bound.lng();
+        }
+
+        @Override
+        public boolean contains(double lat, double lng) {
+            double latRadians = lat * DEGREES_TO_RADIANS;
+            double lngRadians = lng * DEGREES_TO_RADIANS;
+            // Candidates outside of the bound are rejected without allocating a point
+            if (!boundLat.contains(latRadians) || !boundLng.contains(lngRadians)) {
+                return false;
+            }
+            return polygon.contains(toPoint(latRadians, lngRadians));
+        }
+
+        @Override
+        boolean contains(S2Point point) {
+            return polygon.contains(point);
+        }
+    }
+}
@@ -1,21 +1,101 @@
 package com.mapr.geospatial.lib;
 
+import com.google.common.base.Preconditions;
 import com.google.common.geometry.*;
+import com.google.common.primitives.Ints;
+import com.mapr.geospatial.lib.metrics.QueryMetrics;
+import org.ojai.store.Connection;
+import org.ojai.store.QueryCondition;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.google.common.geometry.S2.M_PI;
 import static com.google.common.geometry.S2LatLng.fromDegrees;
 
+/**
+ * Plans spatial queries: covers searched regions with S2 cells and turns the coverings into queries of the
+ * cell Id column.
+ * <p>
+ * Helpers are immutable and safe to share between any number of threads; one helper per application is
+ * enough. Every thread reuses its own coverer and covering buffers, shared by all helpers, so planning a
+ * query in steady state only allocates the region, the coverer's internal candidates and the result.
+ * The covering policy, covering cache and metrics given to a helper must be thread-safe as well, which
+ * the ones of this library are.
+ */
 public class S2Helper {
 
+    private static final double EARTH_CIRCUMFERENCE_METERS = 1000 * 40075.017;
+
+    /**
+     * Scratch state of the current thread, the options of the coverer are set before every covering
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final CoveringPolicy coveringPolicy;
+
+    private final CoveringCache coveringCache;
+
+    private final QueryMetrics metrics;
+
+    private final CellSalting salting;
+
+    /**
+     * Creates helper which covers every region with {@link CoveringOptions#DEFAULT}
+     */
+    public S2Helper() {
+        this(CoveringPolicy.fixed(CoveringOptions.DEFAULT));
+    }
+
+    /**
+     * Creates helper which covers regions with the settings chosen by the policy
+     *
+     * @param coveringPolicy chooses the coverer settings for every searched region,
+     *                       e.g. {@link CoveringPolicy#adaptive()}
+     */
+    public S2Helper(CoveringPolicy coveringPolicy) {
+        this(coveringPolicy, null);
+    }
+
     /**
-     * There is three types of zoom level (1, 2, 3). This levels specify level of accuracy.
-     * The 1 level is the most accurate, and 3 level is less accurate but it need less computations.
+     * Creates helper which reuses polygon queries from the cache
+     *
+     * @param coveringPolicy chooses the coverer settings for every searched region
+     * @param coveringCache  cache of polygon queries, may be shared between helpers
      */
-    private final static Integer ZOOM_LEVEL = 1;
+    public S2Helper(CoveringPolicy coveringPolicy, CoveringCache coveringCache) {
+        this(coveringPolicy, coveringCache, QueryMetrics.NONE);
+    }
+
+    /**
+     * Creates helper which reports covering sizes, query lengths and their timings to the metrics
+     *
+     * @param coveringPolicy chooses the coverer settings for every searched region
+     * @param coveringCache  cache of polygon queries, may be shared between helpers, or null
+     * @param metrics        receives the measurements of every query, e.g. {@code InMemoryQueryMetrics}
+     */
+    public S2Helper(CoveringPolicy coveringPolicy, CoveringCache coveringCache, QueryMetrics metrics) {
+        this(coveringPolicy, coveringCache, metrics, CellSalting.NONE);
+    }
+
+    /**
+     * Creates helper for a salted table, whose queries look up every covering range in all salt buckets
+     *
+     * @param coveringPolicy chooses the coverer settings for every searched region
+     * @param coveringCache  cache of polygon queries, may be shared between helpers, or null
+     * @param metrics        receives the measurements of every query
+     * @param salting        salting of the cell id column, the same the rows were written with
+     */
+    public S2Helper(CoveringPolicy coveringPolicy, CoveringCache coveringCache, QueryMetrics metrics,
+                    CellSalting salting) {
+        this.coveringPolicy = coveringPolicy;
+        this.coveringCache = coveringCache;
+        this.metrics = metrics;
+        this.salting = salting;
+    }
 
     /**
      * Generate query for searching points in the Rectangle region
@@ -24,12 +104,7 @@ public class S2Helper {
      * @return query for searching the points in the region
      */
     public String getQueryForRectangle(String columnName, GPoint lowerLeft, GPoint upperRight) {
-        S2LatLngRect rect = S2LatLngRect.fromPointPair(
-            fromDegrees(lowerLeft.getLatitude(), lowerLeft.getLongitude()),
-            fromDegrees(upperRight.getLatitude(), upperRight.getLongitude())
-        );
-        List<S2CellId> cellIds = getS2CellIds(rect);
-        return generateQueries(columnName, cellIds);
+        return getSpatialQueryForRectangle(columnName, lowerLeft, upperRight).getQuery();
     }
 
     /**
@@ -41,13 +116,7 @@ public class S2Helper {
      * @return query for searching the points in the region
      */
     public String getQueryForCircle(String columnName, GPoint centerPoint, double radius) {
-        S2LatLng center = fromDegrees(centerPoint.getLatitude(), centerPoint.getLongitude());
-        double radius_radians = earthMetersToRadians(radius);
-        S2Cap region = S2Cap.fromAxisHeight(
-            center.normalized().toPoint(),
-            (radius_radians * radius_radians) / 2);
-        List<S2CellId> cellIds = getS2CellIds(region);
-        return generateQueries(columnName, cellIds);
+        return getSpatialQueryForCircle(columnName, centerPoint, radius).getQuery();
     }
 
     /**
@@ -58,9 +127,215 @@ public class S2Helper {
      * @return query for searching the points in the region
      */
     public String getQueryForPolygon(String columnName, List<GPoint> points) {
-        S2Polygon polygon = createPolygon(points);
-        List<S2CellId> cellIds = getS2CellIds(polygon);
-        return generateQueries(columnName, cellIds);
+        return getSpatialQueryForPolygon(columnName, points).getQuery();
+    }
+
+    /**
+     * Generate query for searching points in the polygon region
+     *
+     * @param columnName name of the column which contains cell Id
+     * @param lats       latitudes of the polygon vertices in degrees
+     * @param lngs       longitudes of the polygon vertices in degrees
+     * @return query for searching the points in the region
+     */
+    public String getQueryForPolygon(String columnName, double[] lats, double[] lngs) {
+        return getSpatialQueryForPolygon(columnName, lats, lngs).getQuery();
+    }
+
+    /**
+     * Generate query for searching points in the Rectangle region together with its exact filter
+     *
+     * @param columnName name of the column which contains cell Id
+     * @return query and filter of the region
+     */
+    public SpatialQuery getSpatialQueryForRectangle(String columnName, GPoint lowerLeft, GPoint upperRight) {
+        return createSpatialQuery(columnName, createRect(lowerLeft, upperRight));
+    }
+
+    /**
+     * Generate query for searching points in the circle region together with its exact filter
+     *
+     * @param columnName  name of the column which contains cell Id
+     * @param centerPoint coordinate of the center of the circle search zone
+     * @param radius      the radius of the search zone in meters
+     * @return query and filter of the region
+     */
+    public SpatialQuery getSpatialQueryForCircle(String columnName, GPoint centerPoint, double radius) {
+        return createSpatialQuery(columnName, createCap(centerPoint, radius));
+    }
+
+    /**
+     * Generate query for searching points in the polygon region together with its exact filter
+     *
+     * @param columnName name of the column which contains cell Id
+     * @param points     coordinates of the polygon
+     * @return query and filter of the region
+     */
+    public SpatialQuery getSpatialQueryForPolygon(String columnName, List<GPoint> points) {
+        double[] lats = new double[points.size()];
+        double[] lngs = new double[points.size()];
+        for (int i = 0; i < lats.length; i++) {
+            GPoint point = points.get(i);
+            lats[i] = point.getLatitude();
+            lngs[i] = point.getLongitude();
+        }
+        return getSpatialQueryForPolygon(columnName, lats, lngs);
+    }
+
+    /**
+     * Generate query for searching points in the polygon region together with its exact filter
+     *
+     * @param columnName name of the column which contains cell Id
+     * @param latLngs    interleaved latitude/longitude pairs of the polygon vertices in degrees,
+     *                   read from the position to the limit of the buffer
+     * @return query and filter of the region
+     */
+    public SpatialQuery getSpatialQueryForPolygon(String columnName, DoubleBuffer latLngs) {
+        Preconditions.checkArgument(latLngs.remaining() % 2 == 0,
+            "Latitude/longitude pairs expected, but %s values remain", latLngs.remaining());
+        double[] lats = new double[latLngs.remaining() / 2];
+        double[] lngs = new double[lats.length];
+        int position = latLngs.position();
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = latLngs.get(position + 2 * i);
+            lngs[i] = latLngs.get(position + 2 * i + 1);
+        }
+        return getSpatialQueryForPolygon(columnName, lats, lngs);
+    }
+
+    /**
+     * Generate query for searching points in the polygon region together with its exact filter
+     *
+     * @param columnName name of the column which contains cell Id
+     * @param lats       latitudes of the polygon vertices in degrees
+     * @param lngs       longitudes of the polygon vertices in degrees
+     * @return query and filter of the region
+     */
+    public SpatialQuery getSpatialQueryForPolygon(String columnName, double[] lats, double[] lngs) {
+        Preconditions.checkArgument(lats.length == lngs.length,
+            "Got %s latitudes and %s longitudes", lats.length, lngs.length);
+        Preconditions.checkArgument(lats.length > 0, "Polygon has no vertices");
+        if (coveringCache == null) {
+            return createSpatialQuery(columnName, createPolygon(lats, lngs));
+        }
+        // The cache may be shared between helpers, the served query reports to the metrics of this one
+        return coveringCache.get(columnName, coveringPolicy, salting, lats, lngs,
+            () -> createSpatialQuery(columnName, createPolygon(lats, lngs))).withMetrics(metrics);
+    }
+
+    /**
+     * Generate condition for searching points in the Rectangle region
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param columnName name of the column which contains cell Id
+     * @param conditions additional built conditions which are ANDed with the region condition
+     * @return built condition for searching the points in the region
+     */
+    public QueryCondition getConditionForRectangle(Connection connection, String columnName,
+                                                   GPoint lowerLeft, GPoint upperRight,
+                                                   QueryCondition... conditions) {
+        return getSpatialQueryForRectangle(columnName, lowerLeft, upperRight).getCondition(connection, conditions);
+    }
+
+    /**
+     * Generate condition for searching points in the circle region with determined radius
+     *
+     * @param connection  OJAI connection which creates the condition
+     * @param columnName  name of the column which contains cell Id
+     * @param centerPoint coordinate of the center of the circle search zone
+     * @param radius      the radius of the search zone in meters
+     * @param conditions  additional built conditions which are ANDed with the region condition
+     * @return built condition for searching the points in the region
+     */
+    public QueryCondition getConditionForCircle(Connection connection, String columnName,
+                                                GPoint centerPoint, double radius,
+                                                QueryCondition... conditions) {
+        return getSpatialQueryForCircle(columnName, centerPoint, radius).getCondition(connection, conditions);
+    }
+
+    /**
+     * Generate condition for searching points in the polygon region
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param columnName name of the column which contains cell Id
+     * @param points     coordinates of the polygon
+     * @param conditions additional built conditions which are ANDed with the region condition
+     * @return built condition for searching the points in the region
+     */
+    public QueryCondition getConditionForPolygon(Connection connection, String columnName,
+                                                 List<GPoint> points, QueryCondition... conditions) {
+        return getSpatialQueryForPolygon(columnName, points).getCondition(connection, conditions);
+    }
+
+    /**
+     * Generate condition for searching points in the polygon region
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param columnName name of the column which contains cell Id
+     * @param lats       latitudes of the polygon vertices in degrees
+     * @param lngs       longitudes of the polygon vertices in degrees
+     * @param conditions additional built conditions which are ANDed with the region condition
+     * @return built condition for searching the points in the region
+     */
+    public QueryCondition getConditionForPolygon(Connection connection, String columnName,
+                                                 double[] lats, double[] lngs, QueryCondition... conditions) {
+        return getSpatialQueryForPolygon(columnName, lats, lngs).getCondition(connection, conditions);
+    }
+
+    /**
+     * Generate condition for searching points in the given cell id ranges.
+     * The condition is built directly, so the driver doesn't have to parse a JSON query.
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param columnName name of the column which contains cell Id
+     * @param ranges     merged ranges of leaf cell ids
+     * @param conditions additional built conditions which are ANDed with the ranges condition
+     * @return built condition for searching the points in the ranges
+     */
+    public QueryCondition getConditionForRanges(Connection connection, String columnName,
+                                                CellRanges ranges, QueryCondition... conditions) {
+        return generateCondition(connection, columnName, salting, ranges, conditions);
+    }
+
+    static QueryCondition generateCondition(Connection connection, String columnName,
+                                            CellRanges ranges, QueryCondition... conditions) {
+        return generateCondition(connection, columnName, CellSalting.NONE, ranges, conditions);
+    }
+
+    static QueryCondition generateCondition(Connection connection, String columnName, CellSalting salting,
+                                            CellRanges ranges, QueryCondition... conditions) {
+        QueryCondition condition = connection.newCondition();
+        if (conditions.length > 0) {
+            condition.and();
+        }
+
+        condition.or();
+        String saltColumn = CellSalting.saltColumn(columnName);
+        List<Integer> allBuckets = Ints.asList(IntStream.range(0, salting.getBuckets()).toArray());
+        for (int i = 0; i < ranges.size(); i++) {
+            int bucket = salting.bucket(ranges.min(i), ranges.max(i));
+            if (!salting.isSalted()) {
+                condition.and();
+            } else if (bucket != CellSalting.ALL_BUCKETS) {
+                condition.and().is(saltColumn, QueryCondition.Op.EQUAL, bucket);
+            } else {
+                // The range is looked up in every bucket
+                condition.and().in(saltColumn, allBuckets);
+            }
+            condition
+                .is(columnName, QueryCondition.Op.GREATER_OR_EQUAL, ranges.min(i))
+                .is(columnName, QueryCondition.Op.LESS_OR_EQUAL, ranges.max(i))
+                .close();
+        }
+        condition.close();
+
+        if (conditions.length > 0) {
+            for (QueryCondition additional : conditions) {
+                condition.condition(additional);
+            }
+            condition.close();
+        }
+        return condition.build();
     }
 
     /**
@@ -71,69 +346,142 @@ public class S2Helper {
      * @return cellId long representation
      */
     public Long generateCellIdFromDegrees(double lat, double lng) {
-        return S2CellId.fromLatLng(S2LatLng.fromDegrees(lat, lng)).id();
+        return CellIds.fromDegrees(lat, lng);
+    }
+
+    /**
+     * Generate query for searching points in the given cell id ranges
+     *
+     * @param columnName name of the column which contains cell Id
+     * @param ranges     merged ranges of leaf cell ids
+     * @return query for searching the points in the ranges
+     */
+    public String getQueryForRanges(String columnName, CellRanges ranges) {
+        return generateQuery(columnName, salting, ranges);
     }
 
-    private String generateQueries(String columnName, List<S2CellId> cellIds) {
-        String query = "{\"$or\": [";
-        for (S2CellId cellId : cellIds) {
-            Long bmin = cellId.rangeMin().id();
-            Long bmax = cellId.rangeMax().id();
+    static String generateQuery(String columnName, CellSalting salting, CellRanges ranges) {
+        // {"$and": [{"$ge":{"<column>":<min>}},{"$le":{"<column>":<max>}}]}, takes 40 characters
+        // besides the column names and the ids, and a long is never longer than 20 characters
+        int rangeLength = 40 + 2 * columnName.length() + 2 * 20;
+        String saltColumn = CellSalting.saltColumn(columnName);
+        String allBuckets = null;
+        if (salting.isSalted()) {
+            allBuckets = IntStream.range(0, salting.getBuckets()).mapToObj(Integer::toString)
+                .collect(Collectors.joining(",", "{\"$in\":{\"" + saltColumn + "\":[", "]}},"));
+            rangeLength += allBuckets.length();
+        }
+        StringBuilder query = new StringBuilder(12 + ranges.size() * rangeLength);
 
-            query += "{\"$and\": [{\"$ge\":{\"" + columnName + "\":" + bmin + "}}," +
-                "{\"$le\":{\"" + columnName + "\":" + bmax + "}}]},";
+        query.append("{\"$or\": [");
+        for (int i = 0; i < ranges.size(); i++) {
+            if (i > 0) {
+                query.append(',');
+            }
+            query.append("{\"$and\": [");
+            if (salting.isSalted()) {
+                int bucket = salting.bucket(ranges.min(i), ranges.max(i));
+                if (bucket == CellSalting.ALL_BUCKETS) {
+                    query.append(allBuckets);
+                } else {
+                    query.append("{\"$eq\":{\"").append(saltColumn).append("\":").append(bucket).append("}},");
+                }
+            }
+            query.append("{\"$ge\":{\"").append(columnName).append("\":").append(ranges.min(i))
+                .append("}},{\"$le\":{\"").append(columnName).append("\":").append(ranges.max(i))
+                .append("}}]}");
         }
-        return query.substring(0, query.length() - 1) + "]}";
+        return query.append("]}").toString();
     }
 
-    private ArrayList<S2CellId> getS2CellIds(S2Region region) {
-        ArrayList<S2CellId> covering = new ArrayList<>();
-        S2RegionCoverer coverer = new S2RegionCoverer();
-        coverer.setLevelMod(ZOOM_LEVEL);
-        coverer.getCovering(region, covering);
-        return covering;
+    private SpatialQuery createSpatialQuery(String columnName, S2Region region) {
+        long started = System.nanoTime();
+        Scratch scratch = SCRATCH.get();
+        List<S2CellId> cellIds = cover(scratch, region, scratch.covering, false);
+        CellRanges ranges = scratch.ranges(cellIds);
+        metrics.coveringComputed(cellIds.size(), ranges.size(), System.nanoTime() - started);
+        return new SpatialQuery(columnName, salting, ranges, () -> getInteriorRanges(region), region,
+            metrics);
     }
 
-    private double earthMetersToRadians(double meters) {
-        double kEarthCircumferenceMeters = 1000 * 40075.017;
-        return (2 * M_PI) * (meters / kEarthCircumferenceMeters);
+    /**
+     * Runs on the thread which first reads the filter of the query, with the scratch state of that thread
+     */
+    private CellRanges getInteriorRanges(S2Region region) {
+        Scratch scratch = SCRATCH.get();
+        return scratch.ranges(cover(scratch, region, scratch.interior, true));
     }
 
-    private static S2Polygon createPolygon(List<GPoint> points) {
-        S2PolygonBuilder polygonBuilder = new S2PolygonBuilder();
-        polygonBuilder.addPolygon(createPolygonFromCoordinates(points));
-        return polygonBuilder.assemblePolygon();
+    private ArrayList<S2CellId> cover(Scratch scratch, S2Region region, ArrayList<S2CellId> cells,
+                                      boolean interior) {
+        cells.clear();
+        coveringPolicy.optionsFor(region).applyTo(scratch.coverer);
+        if (interior) {
+            scratch.coverer.getInteriorCovering(region, cells);
+        } else {
+            scratch.coverer.getCovering(region, cells);
+        }
+        return cells;
+    }
+
+    private S2LatLngRect createRect(GPoint lowerLeft, GPoint upperRight) {
+        return S2LatLngRect.fromPointPair(
+            fromDegrees(lowerLeft.getLatitude(), lowerLeft.getLongitude()),
+            fromDegrees(upperRight.getLatitude(), upperRight.getLongitude())
+        );
+    }
+
+    private S2Cap createCap(GPoint centerPoint, double radius) {
+        S2LatLng center = fromDegrees(centerPoint.getLatitude(), centerPoint.getLongitude());
+        double radius_radians = earthMetersToRadians(radius);
+        return S2Cap.fromAxisHeight(
+            center.normalized().toPoint(),
+            (radius_radians * radius_radians) / 2);
+    }
+
+    static double earthMetersToRadians(double meters) {
+        return (2 * M_PI) * (meters / EARTH_CIRCUMFERENCE_METERS);
+    }
+
+    static double earthRadiansToMeters(double radians) {
+        return radians / (2 * M_PI) * EARTH_CIRCUMFERENCE_METERS;
     }
 
     /**
-     * Creates polygon representation of the state based on a coordinates
+     * Creates polygon representation of the state based on a coordinates.
+     * Every vertex is converted to {@link S2Point} once and shared by its two edges.
      */
-    private static S2Polygon createPolygonFromCoordinates(List<GPoint> coordinates) {
+    private static S2Polygon createPolygon(double[] lats, double[] lngs) {
         S2PolygonBuilder polygonBuilder = new S2PolygonBuilder();
 
-        Iterator<GPoint> it = coordinates.iterator();
-
-        GPoint first = it.next();
-        GPoint previous = first;
-        GPoint current = first;
-        while (it.hasNext()) {
-            current = it.next();
-            S2Point previousPoint
-                = S2LatLng.fromDegrees(previous.getLatitude(), previous.getLongitude()).toPoint();
-            S2Point currentPoint
-                = S2LatLng.fromDegrees(current.getLatitude(), current.getLongitude()).toPoint();
-
-            polygonBuilder.addEdge(previousPoint, currentPoint);
+        S2Point first = fromDegrees(lats[0], lngs[0]).toPoint();
+        S2Point previous = first;
+        for (int i = 1; i < lats.length; i++) {
+            S2Point current = fromDegrees(lats[i], lngs[i]).toPoint();
+            polygonBuilder.addEdge(previous, current);
             previous = current;
         }
+        polygonBuilder.addEdge(previous, first);
 
-        S2Point lastPoint
-            = S2LatLng.fromDegrees(current.getLatitude(), current.getLongitude()).toPoint();
-        S2Point firstPoint
-            = S2LatLng.fromDegrees(first.getLatitude(), first.getLongitude()).toPoint();
+        return polygonBuilder.assemblePolygon();
+    }
 
-        polygonBuilder.addEdge(lastPoint, firstPoint);
+    /**
+     * Coverer and buffers reused by the queries of one thread, the ranges are copied out of the buffers
+     */
+    private static final class Scratch {
+        private final S2RegionCoverer coverer = new S2RegionCoverer();
+        private final ArrayList<S2CellId> covering = new ArrayList<>();
+        private final ArrayList<S2CellId> interior = new ArrayList<>();
+        private long[] mins = new long[64];
+        private long[] maxs = new long[64];
 
-        return polygonBuilder.assemblePolygon();
+        CellRanges ranges(List<S2CellId> cellIds) {
+            if (cellIds.size() > mins.length) {
+                mins = new long[Math.max(cellIds.size(), 2 * mins.length)];
+                maxs = new long[mins.length];
+            }
+            return CellRanges.fromCovering(cellIds, mins, maxs);
+        }
     }
 }
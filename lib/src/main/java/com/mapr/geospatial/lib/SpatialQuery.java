@@ -0,0 +1,167 @@
+package com.mapr.geospatial.lib;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.geometry.S2Region;
+import com.mapr.geospatial.lib.metrics.QueryMetrics;
+import org.ojai.Document;
+import org.ojai.store.Connection;
+import org.ojai.store.QueryCondition;
+
+import java.util.Iterator;
+
+/**
+ * Query for the points in a region together with the exact filter of the region.
+ * <p>
+ * The query selects all points of the covering cells, the {@link #getFilter() filter} removes the points
+ * of these cells which are outside of the region. The filter and the interior covering it uses are computed
+ * on the first access, so queries which are only sent to the store don't pay for them.
+ */
+public final class SpatialQuery {
+
+    private final String columnName;
+    private final CellSalting salting;
+    private final S2Region region;
+    private final CellRanges ranges;
+    private final Supplier<CellRanges> interiorRanges;
+    private final Supplier<RegionFilter> filter;
+    private final QueryMetrics metrics;
+
+    private volatile String query;
+
+    SpatialQuery(String columnName, CellSalting salting, CellRanges ranges, Supplier<CellRanges> interiorRanges,
+                 S2Region region, QueryMetrics metrics) {
+        this.columnName = columnName;
+        this.salting = salting;
+        this.metrics = metrics;
+        this.region = region;
+        this.ranges = ranges;
+        this.interiorRanges = Suppliers.memoize(interiorRanges);
+        this.filter = Suppliers.memoize(() -> RegionFilter.of(region, this.interiorRanges.get()));
+    }
+
+    private SpatialQuery(SpatialQuery query, QueryMetrics metrics) {
+        this.columnName = query.columnName;
+        this.salting = query.salting;
+        this.metrics = metrics;
+        this.region = query.region;
+        this.ranges = query.ranges;
+        this.interiorRanges = query.interiorRanges;
+        this.filter = query.filter;
+        this.query = query.query;
+    }
+
+    /**
+     * Returns the query reporting to the metrics, e.g. of the helper a cached query is served to. The
+     * covering, the filter and the query text are shared with this query.
+     */
+    SpatialQuery withMetrics(QueryMetrics metrics) {
+        return metrics == this.metrics ? this : new SpatialQuery(this, metrics);
+    }
+
+    /**
+     * @return name of the column which contains cell Id
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * @return salting of the cell id column, every covering range is looked up in all of its buckets
+     */
+    public CellSalting getSalting() {
+        return salting;
+    }
+
+    /**
+     * @return searched region, e.g. the assembled polygon
+     */
+    public S2Region getRegion() {
+        return region;
+    }
+
+    /**
+     * @return merged ranges of the covering
+     */
+    public CellRanges getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @return merged ranges of the interior covering, every point in them is inside of the region
+     */
+    public CellRanges getInteriorRanges() {
+        return interiorRanges.get();
+    }
+
+    /**
+     * @return exact filter of the searched region
+     */
+    public RegionFilter getFilter() {
+        return filter.get();
+    }
+
+    /**
+     * @return JSON query for searching the points in the covering
+     */
+    public String getQuery() {
+        String result = query;
+        if (result == null) {
+            long started = System.nanoTime();
+            result = S2Helper.generateQuery(columnName, salting, ranges);
+            metrics.queryGenerated(result.length(), System.nanoTime() - started);
+            query = result;
+        }
+        return result;
+    }
+
+    /**
+     * Generate condition for searching the points in the covering
+     *
+     * @param connection OJAI connection which creates the condition
+     * @param conditions additional built conditions which are ANDed with the covering condition
+     * @return built condition
+     */
+    public QueryCondition getCondition(Connection connection, QueryCondition... conditions) {
+        return S2Helper.generateCondition(connection, columnName, salting, ranges, conditions);
+    }
+
+    /**
+     * Lazily skips the found documents outside of the region, by the cell id column of the query.
+     * When the helper has metrics, the time spent in the store iterator, the found and the matching documents
+     * are reported once the documents are read to the end.
+     *
+     * @param documents documents found by the covering query
+     */
+    public Iterable<Document> filter(Iterable<Document> documents) {
+        RegionFilter exact = getFilter();
+        if (metrics == QueryMetrics.NONE) {
+            return exact.filter(documents, columnName);
+        }
+        return () -> new AbstractIterator<Document>() {
+            private final Iterator<Document> found = documents.iterator();
+            private long storeNanos;
+            private long candidates;
+            private long matches;
+
+            @Override
+            protected Document computeNext() {
+                while (true) {
+                    long started = System.nanoTime();
+                    Document document = found.hasNext() ? found.next() : null;
+                    storeNanos += System.nanoTime() - started;
+                    if (document == null) {
+                        metrics.resultsRead(storeNanos, candidates, matches);
+                        return endOfData();
+                    }
+                    candidates++;
+                    if (exact.containsCell(document.getLong(columnName))) {
+                        matches++;
+                        return document;
+                    }
+                }
+            }
+        };
+    }
+}
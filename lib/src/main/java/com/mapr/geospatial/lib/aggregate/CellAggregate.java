@@ -0,0 +1,16 @@
+package com.mapr.geospatial.lib.aggregate;
+
+import lombok.Value;
+
+/**
+ * Number of points in one cell and, when a value field is aggregated, the sum, minimum and maximum of their
+ * values. Without values the sum is 0 and the minimum and maximum are NaN.
+ */
+@Value
+public class CellAggregate {
+    private long cellId;
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+}
@@ -0,0 +1,306 @@
+package com.mapr.geospatial.lib.aggregate;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import org.ojai.Document;
+import org.ojai.FieldPath;
+import org.ojai.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts points, and optionally sums up a numeric field of them, per cell of one level, e.g. the tiles of a
+ * heatmap.
+ * <p>
+ * The cell of a point is the parent of its stored leaf cell id, taken by {@link CellIds#parent(long, int)}
+ * without decoding the geometry. Points are added one at a time as the results of a query stream in, so the
+ * aggregation never holds the documents; for the points of a region add {@code SpatialQuery.filter(...)} of
+ * the found documents. Cells are kept in an open addressing table with the counts and values in parallel
+ * arrays.
+ * <p>
+ * Aggregations are not thread-safe. Aggregations of the same kind built on several threads, e.g. one per
+ * scanned range group, are combined by {@link #merge(CellAggregation)}.
+ */
+public final class CellAggregation {
+
+    private static final long EMPTY = 0;
+
+    private final int level;
+    private final boolean values;
+
+    private long[] cells = new long[16];
+    private long[] counts = new long[16];
+    private double[] sums;
+    private double[] mins;
+    private double[] maxs;
+    private int size;
+    private long total;
+
+    private CellAggregation(int level, boolean values) {
+        Preconditions.checkArgument(0 <= level && level <= S2CellId.MAX_LEVEL,
+            "level must be in [0, %s]: %s", S2CellId.MAX_LEVEL, level);
+        this.level = level;
+        this.values = values;
+        if (values) {
+            sums = new double[16];
+            mins = new double[16];
+            maxs = new double[16];
+        }
+    }
+
+    /**
+     * Creates aggregation which counts the points per cell of the level
+     */
+    public static CellAggregation counts(int level) {
+        return new CellAggregation(level, false);
+    }
+
+    /**
+     * Creates aggregation which counts the points per cell of the level and keeps sum, minimum and maximum
+     * of their values
+     */
+    public static CellAggregation withValues(int level) {
+        return new CellAggregation(level, true);
+    }
+
+    /**
+     * @return level of the aggregated cells
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return whether values are aggregated
+     */
+    public boolean hasValues() {
+        return values;
+    }
+
+    /**
+     * @return number of cells with points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of added points
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Counts the point
+     *
+     * @param cellId leaf cell id of the point, or id of a cell not coarser than the level
+     */
+    public void add(long cellId) {
+        Preconditions.checkState(!values, "Aggregation of values needs a value for every point");
+        int slot = slot(CellIds.parent(cellId, level));
+        counts[slot]++;
+        total++;
+    }
+
+    /**
+     * Counts the point and aggregates its value
+     *
+     * @param cellId leaf cell id of the point, or id of a cell not coarser than the level
+     */
+    public void add(long cellId, double value) {
+        Preconditions.checkState(values, "Aggregation of counts takes no values");
+        int slot = slot(CellIds.parent(cellId, level));
+        if (counts[slot] == 0) {
+            mins[slot] = value;
+            maxs[slot] = value;
+        } else {
+            mins[slot] = Math.min(mins[slot], value);
+            maxs[slot] = Math.max(maxs[slot], value);
+        }
+        counts[slot]++;
+        sums[slot] += value;
+        total++;
+    }
+
+    /**
+     * Adds the found documents as they are read
+     *
+     * @param cellIdColumn column of the leaf cell id
+     * @throws IllegalArgumentException if values are aggregated, they need {@link #addAll(Iterable, String, String)}
+     */
+    public CellAggregation addAll(Iterable<Document> documents, String cellIdColumn) {
+        Preconditions.checkArgument(!values, "Aggregation of values needs the value field");
+        FieldPath cellIdPath = FieldPath.parseFrom(cellIdColumn);
+        for (Document document : documents) {
+            add(document.getLong(cellIdPath));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the found documents with the values of the field as they are read
+     *
+     * @param cellIdColumn column of the leaf cell id
+     * @param valueField   path of the numeric field whose values are aggregated
+     * @throws IllegalArgumentException if a document has no numeric value
+     */
+    public CellAggregation addAll(Iterable<Document> documents, String cellIdColumn, String valueField) {
+        Preconditions.checkArgument(values, "Aggregation of counts takes no values");
+        FieldPath cellIdPath = FieldPath.parseFrom(cellIdColumn);
+        FieldPath valuePath = FieldPath.parseFrom(valueField);
+        for (Document document : documents) {
+            Value value = document.getValue(valuePath);
+            Preconditions.checkArgument(value != null && value.getObject() instanceof Number,
+                "Document has no numeric %s: %s", valueField, document);
+            add(document.getLong(cellIdPath), ((Number) value.getObject()).doubleValue());
+        }
+        return this;
+    }
+
+    /**
+     * Adds the counts and values of the other aggregation, of the same level and kind
+     */
+    public CellAggregation merge(CellAggregation other) {
+        Preconditions.checkArgument(level == other.level && values == other.values,
+            "Aggregations differ in level or values: %s, %s", this, other);
+        Preconditions.checkArgument(other != this, "Aggregation can't be merged into itself");
+        for (int i = 0; i < other.cells.length; i++) {
+            if (other.cells[i] == EMPTY) {
+                continue;
+            }
+            int slot = slot(other.cells[i]);
+            if (values) {
+                mins[slot] = counts[slot] == 0 ? other.mins[i] : Math.min(mins[slot], other.mins[i]);
+                maxs[slot] = counts[slot] == 0 ? other.maxs[i] : Math.max(maxs[slot], other.maxs[i]);
+                sums[slot] += other.sums[i];
+            }
+            counts[slot] += other.counts[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * Adds points to a cell of the level, e.g. a count of a {@link CountPyramid}
+     */
+    void addCount(long cell, long count) {
+        int slot = slot(cell);
+        counts[slot] += count;
+        total += count;
+    }
+
+    /**
+     * @param cellId leaf cell id, or id of a cell not coarser than the level
+     * @return number of points in the cell of the level which contains the cell
+     */
+    public long getCount(long cellId) {
+        int slot = find(CellIds.parent(cellId, level));
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * @return aggregates of all cells with points, ordered by cell id
+     */
+    public List<CellAggregate> getAggregates() {
+        long[] sorted = new long[size];
+        int next = 0;
+        for (long cell : cells) {
+            if (cell != EMPTY) {
+                sorted[next++] = cell;
+            }
+        }
+        Arrays.sort(sorted);
+
+        List<CellAggregate> aggregates = new ArrayList<>(size);
+        for (long cell : sorted) {
+            int slot = find(cell);
+            aggregates.add(values
+                ? new CellAggregate(cell, counts[slot], sums[slot], mins[slot], maxs[slot])
+                : new CellAggregate(cell, counts[slot], 0, Double.NaN, Double.NaN));
+        }
+        return aggregates;
+    }
+
+    @Override
+    public String toString() {
+        return "CellAggregation[level=" + level + ", values=" + values + ", cells=" + size + ", total=" + total + "]";
+    }
+
+    /**
+     * Returns the slot of the cell, adding the cell when it is missing. The table may grow, so the arrays are
+     * read after the call.
+     */
+    private int slot(long cell) {
+        if (2 * (size + 1) > cells.length) {
+            resize();
+        }
+        int mask = cells.length - 1;
+        int slot = hash(cell) & mask;
+        while (cells[slot] != cell) {
+            if (cells[slot] == EMPTY) {
+                cells[slot] = cell;
+                size++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return slot of the cell, or -1 when the cell has no points
+     */
+    private int find(long cell) {
+        int mask = cells.length - 1;
+        for (int slot = hash(cell) & mask; ; slot = (slot + 1) & mask) {
+            if (cells[slot] == cell) {
+                return slot;
+            }
+            if (cells[slot] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private static int hash(long cell) {
+        long hash = cell * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private void resize() {
+        long[] oldCells = cells;
+        long[] oldCounts = counts;
+        double[] oldSums = sums;
+        double[] oldMins = mins;
+        double[] oldMaxs = maxs;
+        int capacity = 2 * oldCells.length;
+        cells = new long[capacity];
+        counts = new long[capacity];
+        if (values) {
+            sums = new double[capacity];
+            mins = new double[capacity];
+            maxs = new double[capacity];
+        }
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCells.length; i++) {
+            if (oldCells[i] == EMPTY) {
+                continue;
+            }
+            int slot = hash(oldCells[i]) & mask;
+            while (cells[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            cells[slot] = oldCells[i];
+            counts[slot] = oldCounts[i];
+            if (values) {
+                sums[slot] = oldSums[i];
+                mins[slot] = oldMins[i];
+                maxs[slot] = oldMaxs[i];
+            }
+        }
+    }
+}
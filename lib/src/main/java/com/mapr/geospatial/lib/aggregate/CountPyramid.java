@@ -0,0 +1,162 @@
+package com.mapr.geospatial.lib.aggregate;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.ingest.BatchSink;
+import org.ojai.Document;
+import org.ojai.FieldPath;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Point counts per cell at several levels, kept up to date as points are inserted, so heatmaps are read
+ * without scanning the points.
+ * <p>
+ * Every inserted leaf cell id increments the count of its parent at every level of the pyramid. The counts of
+ * a level are sorted by cell id, the order of {@link CellRanges}, so the tiles of a region are one sorted
+ * scan per covering range. A tile is counted as a whole when the region covers only a part of it.
+ * <p>
+ * Pyramids are thread-safe, points can be added from any number of threads, e.g. the workers of a
+ * {@code BulkLoader} through {@link #into(BatchSink, String)}.
+ */
+public final class CountPyramid {
+
+    private final int[] levels;
+    private final ConcurrentSkipListMap<Long, LongAdder>[] counts;
+
+    /**
+     * @param levels levels of the counted cells, e.g. 4, 8, 12 and 16 for country, region, city and block tiles
+     */
+    @SuppressWarnings("unchecked")
+    public CountPyramid(int... levels) {
+        Preconditions.checkArgument(levels.length > 0, "No levels");
+        for (int level : levels) {
+            Preconditions.checkArgument(0 <= level && level <= S2CellId.MAX_LEVEL,
+                "level must be in [0, %s]: %s", S2CellId.MAX_LEVEL, level);
+        }
+        this.levels = Arrays.stream(levels).distinct().sorted().toArray();
+        this.counts = new ConcurrentSkipListMap[this.levels.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new ConcurrentSkipListMap<>();
+        }
+    }
+
+    /**
+     * @return levels of the counted cells, from the coarsest
+     */
+    public int[] getLevels() {
+        return levels.clone();
+    }
+
+    /**
+     * @return number of cells with points at the level
+     */
+    public int size(int level) {
+        return counts[index(level)].size();
+    }
+
+    /**
+     * Counts the inserted point at every level
+     *
+     * @param cellId leaf cell id of the point
+     */
+    public void add(long cellId) {
+        for (int i = 0; i < levels.length; i++) {
+            counts[i].computeIfAbsent(CellIds.parent(cellId, levels[i]), cell -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Counts the inserted points at every level
+     */
+    public void addAll(long[] cellIds) {
+        for (long cellId : cellIds) {
+            add(cellId);
+        }
+    }
+
+    /**
+     * Uncounts the deleted point at every level, its cells stay in the pyramid
+     *
+     * @param cellId leaf cell id of the point
+     */
+    public void remove(long cellId) {
+        for (int i = 0; i < levels.length; i++) {
+            LongAdder count = counts[i].get(CellIds.parent(cellId, levels[i]));
+            if (count != null) {
+                count.decrement();
+            }
+        }
+    }
+
+    /**
+     * @param cell id of a cell at one of the levels
+     * @return number of points in the cell
+     */
+    public long getCount(long cell) {
+        int level = S2CellId.MAX_LEVEL - Long.numberOfTrailingZeros(cell) / 2;
+        LongAdder count = counts[index(level)].get(cell);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Reads the counts of the cells at the level which intersect the ranges
+     *
+     * @param ranges merged ranges of leaf cell ids, e.g. {@code SpatialQuery.getRanges()}
+     * @param level  one of the levels of the pyramid
+     * @return counts of the cells with points
+     */
+    public CellAggregation heatmap(CellRanges ranges, int level) {
+        ConcurrentSkipListMap<Long, LongAdder> cells = counts[index(level)];
+        CellAggregation heatmap = CellAggregation.counts(level);
+        long last = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long first = CellIds.parent(ranges.min(i), level);
+            // Neighbouring ranges may end and start in the same cell
+            boolean includeFirst = first != last;
+            last = CellIds.parent(ranges.max(i), level);
+            for (Map.Entry<Long, LongAdder> cell : cells.subMap(first, includeFirst, last, true).entrySet()) {
+                long count = cell.getValue().sum();
+                if (count > 0) {
+                    heatmap.addCount(cell.getKey(), count);
+                }
+            }
+        }
+        return heatmap;
+    }
+
+    /**
+     * Returns sink which counts the documents of every batch before writing it to the given sink
+     *
+     * @param cellIdColumn column of the leaf cell id, e.g. set by a {@code CellIdEnricher} before
+     */
+    public BatchSink into(BatchSink sink, String cellIdColumn) {
+        FieldPath cellIdPath = FieldPath.parseFrom(cellIdColumn);
+        return new BatchSink() {
+            @Override
+            public void write(List<Document> batch) {
+                sink.write(batch);
+                for (Document document : batch) {
+                    add(document.getLong(cellIdPath));
+                }
+            }
+
+            @Override
+            public void flush() {
+                sink.flush();
+            }
+        };
+    }
+
+    private int index(int level) {
+        int index = Arrays.binarySearch(levels, level);
+        Preconditions.checkArgument(index >= 0, "Level %s is not one of %s", level, Arrays.toString(levels));
+        return index;
+    }
+}
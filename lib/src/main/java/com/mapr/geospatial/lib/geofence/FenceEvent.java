@@ -0,0 +1,37 @@
+package com.mapr.geospatial.lib.geofence;
+
+import lombok.Value;
+
+/**
+ * Object entered or left a fence, emitted by the {@link GeofenceEngine} to a {@link FenceEventSink}.
+ */
+@Value
+public class FenceEvent {
+
+    public enum Type {
+        ENTER,
+        EXIT
+    }
+
+    private Type type;
+
+    /**
+     * Id of the moving object
+     */
+    private long objectId;
+
+    /**
+     * Index of the fence in the fences of the engine
+     */
+    private int fence;
+
+    /**
+     * Name of the fence, e.g. the state code
+     */
+    private String fenceName;
+
+    /**
+     * Position which crossed the fence
+     */
+    private Position position;
+}
@@ -0,0 +1,24 @@
+package com.mapr.geospatial.lib.geofence;
+
+import java.util.Queue;
+
+/**
+ * Destination of the events emitted by the {@link GeofenceEngine}.
+ * <p>
+ * Every lane of the engine calls it from its own thread, so implementations must be thread-safe. Events of one
+ * object arrive in the order of its positions.
+ */
+public interface FenceEventSink {
+
+    /**
+     * Receives one event
+     */
+    void accept(FenceEvent event);
+
+    /**
+     * Adds the events to the local queue, which must be thread-safe, e.g. a {@code ConcurrentLinkedQueue}
+     */
+    static FenceEventSink of(Queue<FenceEvent> queue) {
+        return queue::add;
+    }
+}
@@ -0,0 +1,181 @@
+package com.mapr.geospatial.lib.geofence;
+
+/**
+ * Concurrent map from object ids to the index of their last fence, without boxing.
+ * <p>
+ * Keys are spread over segments by their hash, every segment is an open addressing table guarded by its own
+ * monitor. The engine updates an object only from its lane, so segments are rarely contended; readers of
+ * other threads wait at most for one update of the segment.
+ */
+final class FenceStates {
+
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    /**
+     * @param concurrency expected number of updating threads
+     */
+    FenceStates(int concurrency) {
+        int count = Integer.highestOneBit(Math.max(4 * concurrency, 16) - 1) << 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentMask = count - 1;
+    }
+
+    /**
+     * @return fence of the object or {@code missing} when the object is not tracked
+     */
+    int get(long objectId, int missing) {
+        long hash = hash(objectId);
+        Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        synchronized (segment) {
+            return segment.get(objectId, (int) hash, missing);
+        }
+    }
+
+    /**
+     * Sets the fence of the object
+     *
+     * @return previous fence of the object or {@code missing} when the object was not tracked
+     */
+    int put(long objectId, int fence, int missing) {
+        long hash = hash(objectId);
+        Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        synchronized (segment) {
+            return segment.put(objectId, (int) hash, fence, missing);
+        }
+    }
+
+    /**
+     * Forgets the object
+     *
+     * @return previous fence of the object, or missing
+     */
+    int remove(long objectId, int missing) {
+        long hash = hash(objectId);
+        Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        synchronized (segment) {
+            return segment.remove(objectId, (int) hash, missing);
+        }
+    }
+
+    /**
+     * @return number of tracked objects
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size + (segment.hasZero ? 1 : 0);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The high half picks the segment, the low half the slot, so the slots of one segment stay spread
+     */
+    private static long hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Table of one segment. 0 marks an empty slot, so the object id 0 is kept aside.
+     */
+    private static final class Segment {
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private int size;
+        private boolean hasZero;
+        private int zeroValue;
+
+        int get(long key, int hash, int missing) {
+            if (key == EMPTY) {
+                return hasZero ? zeroValue : missing;
+            }
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return missing;
+                }
+            }
+        }
+
+        int put(long key, int hash, int value, int missing) {
+            if (key == EMPTY) {
+                int previous = hasZero ? zeroValue : missing;
+                hasZero = true;
+                zeroValue = value;
+                return previous;
+            }
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            int previous = missing;
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                size++;
+            } else {
+                previous = values[slot];
+            }
+            values[slot] = value;
+            return previous;
+        }
+
+        int remove(long key, int hash, int missing) {
+            if (key == EMPTY) {
+                int previous = hasZero ? zeroValue : missing;
+                hasZero = false;
+                return previous;
+            }
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    return missing;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int previous = values[slot];
+            // Shift back the following keys of the probe sequence, so no tombstones are needed
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                int home = (int) hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+            return previous;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new int[keys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], (int) hash(oldKeys[i]), oldValues[i], 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.mapr.geospatial.lib.geofence;
+
+import com.google.common.base.Preconditions;
+import com.mapr.geospatial.lib.join.SpatialJoin;
+import com.mapr.geospatial.lib.metrics.LatencyHistogram;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns a stream of position updates into enter and exit events of many fences.
+ * <p>
+ * Fences are the polygons of a {@link SpatialJoin}, which maps the cells of their coverings to the fences, so
+ * most positions are assigned to their fence by one lookup. The last fence of every object inside of a fence
+ * is kept in a concurrent map of primitive ids, objects outside of every fence take no memory; a position
+ * whose fence differs from the last one emits an exit of the old fence, then an enter of the new one. Objects
+ * start outside of every fence. When fences overlap, an object is in the first of them, as in the join.
+ * <p>
+ * One thread reads the source and hands every position to one of the lanes by its object id, so the
+ * positions of one object are processed in order while the lanes run in parallel. A full lane blocks the
+ * reader. The latency of every position, from reading it off the source until its events are emitted, is
+ * recorded in {@link #getLatency()}. It covers the wait in the lane, the lookup and the sink, but not the
+ * delivery by the source, which the timestamps of the positions tell against the clock of the producer.
+ * <p>
+ * {@link #start()} starts the threads, {@link #close()} stops reading the source and processes the positions
+ * already read.
+ */
+public class GeofenceEngine implements AutoCloseable {
+
+    /**
+     * Returned by {@link #fenceOf(long)} for objects outside of every fence
+     */
+    public static final int NO_FENCE = SpatialJoin.NO_POLYGON;
+
+    private static final long POLL_MILLIS = 10;
+
+    private final SpatialJoin fences;
+    private final PositionSource source;
+    private final FenceEventSink sink;
+    private final BlockingQueue<Received>[] lanes;
+    private final FenceStates states;
+
+    private final Thread reader;
+    private final Thread[] workers;
+    private volatile boolean reading = true;
+    private volatile boolean processing = true;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder enters = new LongAdder();
+    private final LongAdder exits = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    @SuppressWarnings("unchecked")
+    private GeofenceEngine(Builder builder) {
+        this.fences = builder.fences;
+        this.source = builder.source;
+        this.sink = builder.sink;
+        this.lanes = new BlockingQueue[builder.lanes];
+        this.workers = new Thread[builder.lanes];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            BlockingQueue<Received> queue = new ArrayBlockingQueue<>(builder.laneCapacity);
+            lanes[lane] = queue;
+            workers[lane] = thread("geofence-lane-" + lane, () -> process(queue));
+        }
+        this.states = new FenceStates(builder.lanes);
+        this.reader = thread("geofence-reader", this::read);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts reading the source
+     */
+    public void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        reader.start();
+    }
+
+    /**
+     * Stops reading the source and waits until the positions already read are processed
+     *
+     * @throws IllegalStateException if the source or the sink failed
+     */
+    @Override
+    public void close() throws InterruptedException {
+        reading = false;
+        reader.join();
+        processing = false;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Geofence engine failed", cause);
+        }
+    }
+
+    /**
+     * @return index of the last fence of the object, or {@link #NO_FENCE}
+     */
+    public int fenceOf(long objectId) {
+        return states.get(objectId, NO_FENCE);
+    }
+
+    /**
+     * Forgets the object, its next position inside of a fence enters it again
+     */
+    public void forget(long objectId) {
+        states.remove(objectId, NO_FENCE);
+    }
+
+    /**
+     * @return fences of the engine
+     */
+    public SpatialJoin getFences() {
+        return fences;
+    }
+
+    /**
+     * @return snapshot of the counters
+     */
+    public GeofenceStats getStats() {
+        return new GeofenceStats(positions.sum(), enters.sum(), exits.sum(), states.size());
+    }
+
+    /**
+     * @return latency of the processed positions from reading them until their events are emitted, in
+     * nanoseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    private void read() {
+        try {
+            while (reading && failure.get() == null) {
+                Position position = source.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (position != null) {
+                    lanes[lane(position.getObjectId())].put(new Received(position, System.nanoTime()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void process(BlockingQueue<Received> lane) {
+        try {
+            while (true) {
+                Received received = lane.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (received != null) {
+                    process(received.position);
+                    latency.record(System.nanoTime() - received.nanos);
+                } else if (!processing) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            // Keep draining the lane, so the reader never blocks on it
+            lane.clear();
+        }
+    }
+
+    private void process(Position position) {
+        int fence = fences.find(position.getLatitude(), position.getLongitude());
+        int previous = fence == NO_FENCE
+            ? states.remove(position.getObjectId(), NO_FENCE)
+            : states.put(position.getObjectId(), fence, NO_FENCE);
+        if (fence != previous) {
+            if (previous != NO_FENCE) {
+                sink.accept(new FenceEvent(FenceEvent.Type.EXIT, position.getObjectId(), previous,
+                    fences.name(previous), position));
+                exits.increment();
+            }
+            if (fence != NO_FENCE) {
+                sink.accept(new FenceEvent(FenceEvent.Type.ENTER, position.getObjectId(), fence,
+                    fences.name(fence), position));
+                enters.increment();
+            }
+        }
+        positions.increment();
+    }
+
+    private int lane(long objectId) {
+        long hash = objectId * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(hash ^ (hash >>> 32), lanes.length);
+    }
+
+    /**
+     * Position with the {@link System#nanoTime()} when it was read off the source
+     */
+    private static final class Received {
+        private final Position position;
+        private final long nanos;
+
+        Received(Position position, long nanos) {
+            this.position = position;
+            this.nanos = nanos;
+        }
+    }
+
+    private static Thread thread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public static final class Builder {
+        private SpatialJoin fences;
+        private PositionSource source;
+        private FenceEventSink sink;
+        private int lanes = Runtime.getRuntime().availableProcessors();
+        private int laneCapacity = 4096;
+
+        private Builder() {
+        }
+
+        /**
+         * Fences, e.g. {@code SpatialJoin.of(states)}
+         */
+        public Builder fences(SpatialJoin fences) {
+            this.fences = fences;
+            return this;
+        }
+
+        /**
+         * Stream of the positions, e.g. {@link PositionSource#of(BlockingQueue)}
+         */
+        public Builder source(PositionSource source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * Destination of the events, called from all lanes
+         */
+        public Builder sink(FenceEventSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Number of lanes processing positions in parallel, the number of cores by default
+         */
+        public Builder lanes(int lanes) {
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         * Number of positions waiting in one lane before the reader blocks, 4096 by default
+         */
+        public Builder laneCapacity(int laneCapacity) {
+            this.laneCapacity = laneCapacity;
+            return this;
+        }
+
+        public GeofenceEngine build() {
+            Preconditions.checkNotNull(fences, "fences must be set");
+            Preconditions.checkNotNull(source, "source must be set");
+            Preconditions.checkNotNull(sink, "sink must be set");
+            Preconditions.checkArgument(lanes > 0, "lanes must be positive: %s", lanes);
+            Preconditions.checkArgument(laneCapacity > 0, "laneCapacity must be positive: %s", laneCapacity);
+            return new GeofenceEngine(this);
+        }
+    }
+}
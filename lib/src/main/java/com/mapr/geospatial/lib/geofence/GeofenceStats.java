@@ -0,0 +1,30 @@
+package com.mapr.geospatial.lib.geofence;
+
+import lombok.Value;
+
+/**
+ * Counters of a {@link GeofenceEngine}.
+ */
+@Value
+public class GeofenceStats {
+
+    /**
+     * Number of processed positions
+     */
+    private long positions;
+
+    /**
+     * Number of emitted enter events
+     */
+    private long enters;
+
+    /**
+     * Number of emitted exit events
+     */
+    private long exits;
+
+    /**
+     * Number of objects inside of a fence
+     */
+    private int tracked;
+}
@@ -0,0 +1,30 @@
+package com.mapr.geospatial.lib.geofence;
+
+import lombok.Value;
+
+/**
+ * Position update of a moving object, read by the {@link GeofenceEngine} from a {@link PositionSource}.
+ */
+@Value
+public class Position {
+
+    /**
+     * Id of the moving object
+     */
+    private long objectId;
+
+    /**
+     * Latitude in degrees
+     */
+    private double latitude;
+
+    /**
+     * Longitude in degrees
+     */
+    private double longitude;
+
+    /**
+     * Milliseconds since the epoch when the position was produced, e.g. {@link System#currentTimeMillis()}
+     */
+    private long timestamp;
+}
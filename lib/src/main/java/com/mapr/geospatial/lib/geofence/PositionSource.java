@@ -0,0 +1,26 @@
+package com.mapr.geospatial.lib.geofence;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream of position updates read by the {@link GeofenceEngine}, e.g. a local queue or a stream consumer.
+ * <p>
+ * The engine reads it from one thread.
+ */
+public interface PositionSource {
+
+    /**
+     * Returns the next position, waiting up to the timeout for it
+     *
+     * @return next position, or null when none arrived in time
+     */
+    Position poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Reads positions from the local queue
+     */
+    static PositionSource of(BlockingQueue<Position> queue) {
+        return queue::poll;
+    }
+}
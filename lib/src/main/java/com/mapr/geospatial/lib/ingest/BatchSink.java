@@ -0,0 +1,75 @@
+package com.mapr.geospatial.lib.ingest;
+
+import org.ojai.Document;
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentStore;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Destination of the batches written by {@link BulkLoader}.
+ * <p>
+ * Batches are written from the loader worker threads, so implementations must be thread-safe.
+ */
+public interface BatchSink {
+
+    /**
+     * Writes one batch of documents
+     */
+    void write(List<Document> batch);
+
+    /**
+     * Makes all written batches durable, called once after the last batch, also when the load failed, so
+     * the sink can release its resources
+     */
+    void flush();
+
+    /**
+     * Writes batches through the bulk {@link DocumentStore#insert(org.ojai.DocumentStream)} path.
+     * <p>
+     * Every writing thread inserts through its own store of the table, opened from the connection on its
+     * first batch, so the workers of a loader write in parallel. {@link #flush()} flushes and closes these
+     * stores, all of them even when one fails; a later batch opens new ones.
+     *
+     * @param storePath path of the table, e.g. {@code /apps/airports}
+     */
+    static BatchSink forStore(Connection connection, String storePath) {
+        return new BatchSink() {
+            private final ConcurrentHashMap<Thread, DocumentStore> stores = new ConcurrentHashMap<>();
+
+            @Override
+            public void write(List<Document> batch) {
+                stores.computeIfAbsent(Thread.currentThread(), thread -> connection.getStore(storePath))
+                    .insert(new ListDocumentStream(batch));
+            }
+
+            @Override
+            public void flush() {
+                RuntimeException failure = null;
+                Iterator<DocumentStore> iterator = stores.values().iterator();
+                while (iterator.hasNext()) {
+                    DocumentStore store = iterator.next();
+                    iterator.remove();
+                    try {
+                        try {
+                            store.flush();
+                        } finally {
+                            store.close();
+                        }
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        };
+    }
+}
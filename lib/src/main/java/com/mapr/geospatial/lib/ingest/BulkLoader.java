@@ -0,0 +1,220 @@
+package com.mapr.geospatial.lib.ingest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingInputStream;
+import org.ojai.Document;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Loads newline-delimited JSON into a {@link BatchSink} in batches.
+ * <p>
+ * The calling thread only reads and splits lines, parsing the documents and writing the batches run on a
+ * pool of workers. At most {@code maxInFlightBatches} batches are read but not yet written; when all of
+ * them are taken the reader blocks, so a slow store doesn't let the file pile up in memory.
+ * <p>
+ * The first failed batch stops the load, batches already handed to the workers are still finished.
+ * Loaders are immutable and can be shared between threads.
+ */
+public class BulkLoader {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Function<String, Document> parser;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxInFlightBatches;
+
+    private BulkLoader(Function<String, Document> parser, int batchSize, int parallelism, int maxInFlightBatches) {
+        this.parser = parser;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Loads the file, one document per line, blank lines are skipped
+     *
+     * @return number of loaded rows and read bytes
+     * @throws IOException if the file cannot be read, is interrupted or a batch fails
+     */
+    public LoadStats load(Path file, BatchSink sink) throws IOException {
+        long start = System.nanoTime();
+        LongAdder rows = new LongAdder();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        long bytes;
+        try {
+            bytes = read(file, sink, rows, failure);
+            if (failure.get() != null) {
+                throw new IOException("Load of " + file + " failed after " + rows.sum() + " rows", failure.get());
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // The sink releases what it holds on flush, e.g. the stores opened by BatchSink.forStore
+            try {
+                sink.flush();
+            } catch (RuntimeException flushFailure) {
+                e.addSuppressed(flushFailure);
+            }
+            throw e;
+        }
+        sink.flush();
+
+        return new LoadStats(rows.sum(), bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads the file and hands its batches to the workers, returns once no worker writes to the sink any more
+     *
+     * @return number of read bytes
+     */
+    private long read(Path file, BatchSink sink, LongAdder rows, AtomicReference<Throwable> failure)
+        throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlightBatches);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+
+        boolean completed = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             CountingInputStream input = new CountingInputStream(Channels.newInputStream(channel));
+             BufferedReader reader = new BufferedReader(
+                 new InputStreamReader(input, StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+
+            List<String> lines = new ArrayList<>(batchSize);
+            String line;
+            while (failure.get() == null && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    submit(lines, sink, workers, inFlight, rows, failure);
+                    lines = new ArrayList<>(batchSize);
+                }
+            }
+            if (!lines.isEmpty() && failure.get() == null) {
+                submit(lines, sink, workers, inFlight, rows, failure);
+            }
+            completed = true;
+            return input.getCount();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Load of " + file + " was interrupted");
+        } finally {
+            // Batches not started yet are dropped when the load fails, they give back their permits
+            if (!completed || failure.get() != null) {
+                inFlight.release(workers.shutdownNow().size());
+            } else {
+                workers.shutdown();
+            }
+            // All permits are back once every started batch is written
+            inFlight.acquireUninterruptibly(maxInFlightBatches);
+        }
+    }
+
+    private void submit(List<String> lines, BatchSink sink, ExecutorService workers, Semaphore inFlight,
+                        LongAdder rows, AtomicReference<Throwable> failure) throws InterruptedException {
+        inFlight.acquire();
+        workers.execute(() -> {
+            try {
+                List<Document> batch = new ArrayList<>(lines.size());
+                for (String line : lines) {
+                    batch.add(parser.apply(line));
+                }
+                sink.write(batch);
+                rows.add(batch.size());
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL = new AtomicInteger();
+
+        private final int pool = POOL.incrementAndGet();
+        private final AtomicInteger worker = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bulk-loader-" + pool + "-" + worker.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static final class Builder {
+        private Function<String, Document> parser;
+        private int batchSize = 1000;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxInFlightBatches = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * Parses one line into a document, e.g. {@code connection::newDocument}. Called from the workers,
+         * so it must be thread-safe.
+         */
+        public Builder parser(Function<String, Document> parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * Number of documents in one bulk insert
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Number of worker threads which parse and write batches
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Maximum number of batches read but not yet written, twice the parallelism by default
+         */
+        public Builder maxInFlightBatches(int maxInFlightBatches) {
+            this.maxInFlightBatches = maxInFlightBatches;
+            return this;
+        }
+
+        public BulkLoader build() {
+            Preconditions.checkNotNull(parser, "parser must be set");
+            Preconditions.checkArgument(batchSize > 0, "batchSize must be positive: %s", batchSize);
+            Preconditions.checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+            int inFlight = maxInFlightBatches == -1 ? 2 * parallelism : maxInFlightBatches;
+            Preconditions.checkArgument(inFlight > 0, "maxInFlightBatches must be positive: %s", inFlight);
+            return new BulkLoader(parser, batchSize, parallelism, inFlight);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.mapr.geospatial.lib.ingest;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellKeyDesign;
+import com.mapr.geospatial.lib.CellLevelPlanner;
+import com.mapr.geospatial.lib.CellSalting;
+import org.ojai.Document;
+import org.ojai.FieldPath;
+import org.ojai.Value;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Adds the leaf cell id of a point, and optionally ids of its coarser parents, to documents which only
+ * carry latitude/longitude.
+ * <p>
+ * Documents are enriched a batch at a time: coordinates of the whole batch are read into arrays and the
+ * ids are computed by {@link CellIds#fromDegrees(double[], double[])}. Wrapped around the sink of a
+ * {@link BulkLoader} the ids are computed on the loader workers, so on all cores.
+ * <p>
+ * Enrichers are immutable and can be shared between threads.
+ */
+public class CellIdEnricher {
+
+    private final FieldPath latitudePath;
+    private final FieldPath longitudePath;
+    private final FieldPath cellIdPath;
+    private final int[] parentLevels;
+    private final FieldPath[] parentPaths;
+    private final boolean cellRowKeys;
+    private final CellSalting salting;
+    private final FieldPath saltPath;
+
+    private CellIdEnricher(String latitudePath, String longitudePath, String cellIdColumn, int[] parentLevels,
+                           boolean cellRowKeys, CellSalting salting) {
+        this.latitudePath = FieldPath.parseFrom(latitudePath);
+        this.longitudePath = FieldPath.parseFrom(longitudePath);
+        this.cellIdPath = FieldPath.parseFrom(cellIdColumn);
+        this.parentLevels = parentLevels;
+        this.parentPaths = new FieldPath[parentLevels.length];
+        for (int i = 0; i < parentLevels.length; i++) {
+            parentPaths[i] = FieldPath.parseFrom(CellLevelPlanner.levelColumn(cellIdColumn, parentLevels[i]));
+        }
+        this.cellRowKeys = cellRowKeys;
+        this.salting = salting;
+        this.saltPath = FieldPath.parseFrom(CellSalting.saltColumn(cellIdColumn));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Sets the cell id columns of every document of the batch
+     *
+     * @throws IllegalArgumentException if a document has no numeric latitude or longitude
+     */
+    public void enrich(List<Document> batch) {
+        int size = batch.size();
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        for (int i = 0; i < size; i++) {
+            Document document = batch.get(i);
+            lats[i] = coordinate(document, latitudePath);
+            lngs[i] = coordinate(document, longitudePath);
+        }
+
+        long[] ids = CellIds.fromDegrees(lats, lngs);
+
+        for (int i = 0; i < size; i++) {
+            Document document = batch.get(i);
+            document.set(cellIdPath, ids[i]);
+            for (int level = 0; level < parentLevels.length; level++) {
+                document.set(parentPaths[level], CellIds.parent(ids[i], parentLevels[level]));
+            }
+            if (salting.isSalted()) {
+                document.set(saltPath, salting.bucket(ids[i]));
+            }
+            if (cellRowKeys) {
+                String suffix = document.getId() == null ? UUID.randomUUID().toString() : document.getIdString();
+                document.setId(CellKeyDesign.rowKey(ids[i], suffix, salting));
+            }
+        }
+    }
+
+    /**
+     * Returns sink which enriches every batch before writing it to the given sink
+     */
+    public BatchSink into(BatchSink sink) {
+        return new BatchSink() {
+            @Override
+            public void write(List<Document> batch) {
+                enrich(batch);
+                sink.write(batch);
+            }
+
+            @Override
+            public void flush() {
+                sink.flush();
+            }
+        };
+    }
+
+    private static double coordinate(Document document, FieldPath path) {
+        Value value = document.getValue(path);
+        Preconditions.checkArgument(value != null && value.getObject() instanceof Number,
+            "Document has no numeric %s: %s", path.asPathString(), document);
+        return ((Number) value.getObject()).doubleValue();
+    }
+
+    public static final class Builder {
+        private String latitudePath;
+        private String longitudePath;
+        private String cellIdColumn = "cellId";
+        private int[] parentLevels = new int[0];
+        private boolean cellRowKeys;
+        private CellSalting salting = CellSalting.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * Path of an object with {@code latitude} and {@code longitude} fields, e.g. {@code value.loc.coordinates[0]}
+         */
+        public Builder coordinatesPath(String coordinatesPath) {
+            return latitudePath(coordinatesPath + ".latitude")
+                .longitudePath(coordinatesPath + ".longitude");
+        }
+
+        /**
+         * Path of the latitude in degrees
+         */
+        public Builder latitudePath(String latitudePath) {
+            this.latitudePath = latitudePath;
+            return this;
+        }
+
+        /**
+         * Path of the longitude in degrees
+         */
+        public Builder longitudePath(String longitudePath) {
+            this.longitudePath = longitudePath;
+            return this;
+        }
+
+        /**
+         * Column of the leaf cell id, {@code cellId} by default
+         */
+        public Builder cellIdColumn(String cellIdColumn) {
+            this.cellIdColumn = cellIdColumn;
+            return this;
+        }
+
+        /**
+         * Levels of the parent cell ids stored next to the leaf cell id, in the columns named by
+         * {@link CellLevelPlanner#levelColumn(String, int)} and queried through a {@link CellLevelPlanner}
+         */
+        public Builder parentLevels(int... parentLevels) {
+            this.parentLevels = parentLevels.clone();
+            return this;
+        }
+
+        /**
+         * Replaces the {@code _id} of every document by {@link CellKeyDesign#rowKey(long, String)} of its cell id
+         * and its original {@code _id}, or a random UUID when it has none. Off by default, and for static points
+         * only: the keys can't follow moving objects.
+         */
+        public Builder cellRowKeys(boolean cellRowKeys) {
+            this.cellRowKeys = cellRowKeys;
+            return this;
+        }
+
+        /**
+         * Salting of the table, the bucket of every document is stored in {@link CellSalting#saltColumn(String)}
+         * and starts its row key when {@link #cellRowKeys(boolean)} is on. {@link CellSalting#NONE} by default.
+         */
+        public Builder salting(CellSalting salting) {
+            this.salting = salting;
+            return this;
+        }
+
+        public CellIdEnricher build() {
+            Preconditions.checkNotNull(latitudePath, "latitudePath must be set");
+            Preconditions.checkNotNull(longitudePath, "longitudePath must be set");
+            Preconditions.checkNotNull(cellIdColumn, "cellIdColumn must be set");
+            Preconditions.checkNotNull(salting, "salting must be set");
+            for (int level : parentLevels) {
+                Preconditions.checkArgument(0 <= level && level < S2CellId.MAX_LEVEL,
+                    "Parent level must be in [0, %s): %s", S2CellId.MAX_LEVEL, level);
+            }
+            int[] levels = Arrays.stream(parentLevels).distinct().sorted().toArray();
+            return new CellIdEnricher(latitudePath, longitudePath, cellIdColumn, levels, cellRowKeys, salting);
+        }
+    }
+}
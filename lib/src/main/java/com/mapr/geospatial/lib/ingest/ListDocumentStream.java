@@ -0,0 +1,59 @@
+package com.mapr.geospatial.lib.ingest;
+
+import org.ojai.Document;
+import org.ojai.DocumentListener;
+import org.ojai.DocumentReader;
+import org.ojai.DocumentStream;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Document stream over an in-memory batch, which the store consumes in one bulk insert.
+ */
+class ListDocumentStream implements DocumentStream {
+
+    private final List<Document> documents;
+
+    ListDocumentStream(List<Document> documents) {
+        this.documents = documents;
+    }
+
+    @Override
+    public void streamTo(DocumentListener listener) {
+        try {
+            for (Document document : documents) {
+                if (!listener.documentArrived(document)) {
+                    return;
+                }
+            }
+            listener.eos();
+        } catch (Exception e) {
+            listener.failed(e);
+        }
+    }
+
+    @Override
+    public Iterator<Document> iterator() {
+        return documents.iterator();
+    }
+
+    @Override
+    public Iterable<DocumentReader> documentReaders() {
+        return documents.stream()
+            .map(Document::asReader)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Declared by newer OJAI versions, an in-memory stream has no query plan
+     */
+    public Document getQueryPlan() {
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mapr.geospatial.lib.ingest;
+
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link BulkLoader} run.
+ */
+@Value
+public class LoadStats {
+    private long rows;
+    private long bytes;
+    private long elapsedNanos;
+
+    public double getRowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
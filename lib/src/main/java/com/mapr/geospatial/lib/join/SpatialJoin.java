@@ -0,0 +1,267 @@
+package com.mapr.geospatial.lib.join;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellRanges;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
+import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.RegionFilter;
+import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns points to the polygons which contain them, e.g. every point to its state, without the store.
+ * <p>
+ * Every polygon is covered by cells no finer than the join level, and the covering and interior covering
+ * are expanded into cells of exactly that level. A map from these cell ids to ints tells for every cell
+ * either the one polygon whose interior contains it, or the polygons whose boundary crosses it. A point is
+ * looked up by the id of its parent at the join level; only points in boundary cells are tested against the
+ * exact polygons, and only against the polygons of their cell.
+ * <p>
+ * When polygons overlap, a point is assigned to the first containing polygon in the order they were given.
+ * Joins are immutable and can be shared between threads.
+ */
+public final class SpatialJoin {
+
+    /**
+     * Returned for points outside of every polygon
+     */
+    public static final int NO_POLYGON = -1;
+
+    private static final int DEFAULT_LEVEL = 10;
+
+    /**
+     * Number of points joined by one task of {@link #parallelJoin(double[], double[])}
+     */
+    private static final int PARALLEL_CHUNK_SIZE = 8192;
+
+    private final int level;
+    private final String[] names;
+    private final RegionFilter[] filters;
+    private final LongIntHashMap cells;
+    private final int[][] candidates;
+
+    private SpatialJoin(int level, String[] names, RegionFilter[] filters, LongIntHashMap cells,
+                        int[][] candidates) {
+        this.level = level;
+        this.names = names;
+        this.filters = filters;
+        this.cells = cells;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Builds join of the polygons over cells at level 10, about 10 km wide
+     *
+     * @param polygons vertices of every polygon keyed by its name, e.g. the state code
+     */
+    public static SpatialJoin of(Map<String, List<GPoint>> polygons) {
+        return of(polygons, DEFAULT_LEVEL);
+    }
+
+    /**
+     * Builds join of the polygons. Finer levels test fewer points exactly but hold more cells.
+     *
+     * @param polygons vertices of every polygon keyed by its name, e.g. the state code
+     * @param level    level of the looked up cells
+     */
+    public static SpatialJoin of(Map<String, List<GPoint>> polygons, int level) {
+        Preconditions.checkArgument(0 <= level && level <= S2CellId.MAX_LEVEL,
+            "level must be in [0, %s]: %s", S2CellId.MAX_LEVEL, level);
+        // The coverer stops at the level and is not limited in cells, so boundary cells are as small as possible
+        S2Helper helper = new S2Helper(CoveringPolicy.fixed(CoveringOptions.builder()
+            .maxLevel(level)
+            .maxCells(Integer.MAX_VALUE)
+            .build()));
+
+        int size = polygons.size();
+        String[] names = new String[size];
+        RegionFilter[] filters = new RegionFilter[size];
+        SpatialQuery[] queries = new SpatialQuery[size];
+        int index = 0;
+        for (Map.Entry<String, List<GPoint>> polygon : polygons.entrySet()) {
+            names[index] = polygon.getKey();
+            queries[index] = helper.getSpatialQueryForPolygon("cellId", polygon.getValue());
+            filters[index] = RegionFilter.of(queries[index].getRegion());
+            index++;
+        }
+
+        LongIntHashMap cells = new LongIntHashMap(1024);
+        long lowestOnBit = 1L << (2 * (S2CellId.MAX_LEVEL - level));
+
+        // Interiors first, a cell inside of one polygon needs no exact test unless an earlier boundary crosses it
+        for (int polygon = 0; polygon < size; polygon++) {
+            CellRanges interior = queries[polygon].getInteriorRanges();
+            for (int range = 0; range < interior.size(); range++) {
+                for (long cell = interior.min(range) + lowestOnBit - 1; cell <= interior.max(range);
+                     cell += 2 * lowestOnBit) {
+                    if (cells.get(cell, NO_POLYGON) == NO_POLYGON) {
+                        cells.put(cell, polygon);
+                    }
+                    if (cell > Long.MAX_VALUE - 2 * lowestOnBit) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Cells of a covering which are not interior are boundary cells, their polygons become candidates.
+        // A cell inside of a polygon is a boundary cell as well when an earlier polygon crosses it, its
+        // candidates are the earlier polygons followed by the one containing it.
+        List<List<Integer>> candidates = new ArrayList<>();
+        List<Integer> interiors = new ArrayList<>();
+        for (int polygon = 0; polygon < size; polygon++) {
+            CellRanges covering = queries[polygon].getRanges();
+            for (int range = 0; range < covering.size(); range++) {
+                for (long cell = covering.min(range) + lowestOnBit - 1; cell <= covering.max(range);
+                     cell += 2 * lowestOnBit) {
+                    int value = cells.get(cell, NO_POLYGON);
+                    if (value == NO_POLYGON || polygon < value) {
+                        candidates.add(new ArrayList<>());
+                        interiors.add(value);
+                        value = candidateValue(candidates.size() - 1);
+                        cells.put(cell, value);
+                    }
+                    if (value < NO_POLYGON) {
+                        int interior = interiors.get(candidateIndex(value));
+                        if (interior == NO_POLYGON || polygon < interior) {
+                            candidates.get(candidateIndex(value)).add(polygon);
+                        }
+                    }
+                    if (cell > Long.MAX_VALUE - 2 * lowestOnBit) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int[][] candidateArrays = new int[candidates.size()][];
+        for (int i = 0; i < candidateArrays.length; i++) {
+            List<Integer> cellCandidates = candidates.get(i);
+            if (interiors.get(i) != NO_POLYGON) {
+                cellCandidates.add(interiors.get(i));
+            }
+            candidateArrays[i] = cellCandidates.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new SpatialJoin(level, names, filters, cells, candidateArrays);
+    }
+
+    /**
+     * @return number of polygons
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return name of the polygon, as given when the join was built
+     */
+    public String name(int polygon) {
+        return names[polygon];
+    }
+
+    /**
+     * @return level of the looked up cells
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return number of cells in the lookup
+     */
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    /**
+     * @return number of cells whose points are tested exactly
+     */
+    public int getBoundaryCellCount() {
+        return candidates.length;
+    }
+
+    /**
+     * Finds the polygon containing the point
+     *
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @return index of the polygon or {@link #NO_POLYGON}
+     */
+    public int find(double lat, double lng) {
+        int value = cells.get(CellIds.parent(CellIds.fromDegrees(lat, lng), level), NO_POLYGON);
+        if (value >= NO_POLYGON) {
+            return value;
+        }
+        for (int polygon : candidates[candidateIndex(value)]) {
+            if (filters[polygon].contains(lat, lng)) {
+                return polygon;
+            }
+        }
+        return NO_POLYGON;
+    }
+
+    /**
+     * Finds the polygon of every point
+     *
+     * @param lats latitudes in degrees
+     * @param lngs longitudes in degrees
+     * @return index of the polygon of every point or {@link #NO_POLYGON}
+     */
+    public int[] join(double[] lats, double[] lngs) {
+        checkSameLength(lats, lngs);
+        int[] polygons = new int[lats.length];
+        join(lats, lngs, polygons, 0, lats.length);
+        return polygons;
+    }
+
+    /**
+     * Finds the polygon of every point on all cores, for large batches
+     *
+     * @param lats latitudes in degrees
+     * @param lngs longitudes in degrees
+     * @return index of the polygon of every point or {@link #NO_POLYGON}
+     */
+    public int[] parallelJoin(double[] lats, double[] lngs) {
+        checkSameLength(lats, lngs);
+        int[] polygons = new int[lats.length];
+        int chunks = (lats.length + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * PARALLEL_CHUNK_SIZE;
+            join(lats, lngs, polygons, from, Math.min(from + PARALLEL_CHUNK_SIZE, lats.length));
+        });
+        return polygons;
+    }
+
+    /**
+     * Finds the polygons of the points in {@code [from, to)} into the same positions of {@code polygons}
+     */
+    public void join(double[] lats, double[] lngs, int[] polygons, int from, int to) {
+        for (int i = from; i < to; i++) {
+            polygons[i] = find(lats[i], lngs[i]);
+        }
+    }
+
+    /**
+     * Boundary cells map to {@code -2 - index} of their candidates, below {@link #NO_POLYGON}
+     */
+    private static int candidateValue(int index) {
+        return -2 - index;
+    }
+
+    private static int candidateIndex(int value) {
+        return -2 - value;
+    }
+
+    private static void checkSameLength(double[] lats, double[] lngs) {
+        Preconditions.checkArgument(lats.length == lngs.length,
+            "Latitudes and longitudes differ in length: %s, %s", lats.length, lngs.length);
+    }
+}
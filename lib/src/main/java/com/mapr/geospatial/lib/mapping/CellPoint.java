@@ -0,0 +1,13 @@
+package com.mapr.geospatial.lib.mapping;
+
+import lombok.Value;
+
+/**
+ * Leaf cell id and coordinates in degrees of a found document
+ */
+@Value
+public class CellPoint {
+    private long cellId;
+    private double latitude;
+    private double longitude;
+}
@@ -0,0 +1,64 @@
+package com.mapr.geospatial.lib.mapping;
+
+import com.mapr.geospatial.lib.CellIndex;
+
+import java.util.Arrays;
+
+/**
+ * Cell ids and coordinates of many documents in growable parallel primitive arrays, 24 bytes per row
+ * and no object per row. Filled by {@link CellPointMapper#mapColumns(Iterable)}.
+ */
+public final class CellPointColumns {
+
+    private long[] cellIds = new long[1024];
+    private double[] lats = new double[1024];
+    private double[] lngs = new double[1024];
+    private int size;
+
+    void add(long cellId, double lat, double lng) {
+        if (size == cellIds.length) {
+            cellIds = Arrays.copyOf(cellIds, 2 * size);
+            lats = Arrays.copyOf(lats, 2 * size);
+            lngs = Arrays.copyOf(lngs, 2 * size);
+        }
+        cellIds[size] = cellId;
+        lats[size] = lat;
+        lngs[size] = lng;
+        size++;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return leaf cell id
+     */
+    public long cellId(int row) {
+        return cellIds[row];
+    }
+
+    /**
+     * @return latitude in degrees
+     */
+    public double latitude(int row) {
+        return lats[row];
+    }
+
+    /**
+     * @return longitude in degrees
+     */
+    public double longitude(int row) {
+        return lngs[row];
+    }
+
+    /**
+     * Builds in-memory index of the rows, the payload reference of a point is its row
+     */
+    public CellIndex toCellIndex() {
+        return CellIndex.of(Arrays.copyOf(cellIds, size), Arrays.copyOf(lats, size), Arrays.copyOf(lngs, size));
+    }
+}
@@ -0,0 +1,100 @@
+package com.mapr.geospatial.lib.mapping;
+
+import com.google.common.base.Preconditions;
+import org.ojai.Document;
+import org.ojai.FieldPath;
+
+/**
+ * Reads the leaf cell id and the coordinates of documents, the fields every spatial result needs.
+ * <p>
+ * Field paths are parsed once, when the mapper is built. Mappers are immutable and can be shared between threads.
+ */
+public class CellPointMapper implements RowMapper<CellPoint> {
+
+    private final String[] fields;
+    private final FieldPath cellIdPath;
+    private final FieldPath latitudePath;
+    private final FieldPath longitudePath;
+
+    private CellPointMapper(String cellIdColumn, String latitudePath, String longitudePath) {
+        this.fields = new String[]{cellIdColumn, latitudePath, longitudePath};
+        this.cellIdPath = FieldPath.parseFrom(cellIdColumn);
+        this.latitudePath = FieldPath.parseFrom(latitudePath);
+        this.longitudePath = FieldPath.parseFrom(longitudePath);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+    @Override
+    public CellPoint map(Document document) {
+        return new CellPoint(document.getLong(cellIdPath), document.getDouble(latitudePath),
+            document.getDouble(longitudePath));
+    }
+
+    /**
+     * Decodes all documents into primitive columns, without an object per row
+     */
+    public CellPointColumns mapColumns(Iterable<Document> documents) {
+        CellPointColumns columns = new CellPointColumns();
+        for (Document document : documents) {
+            columns.add(document.getLong(cellIdPath), document.getDouble(latitudePath),
+                document.getDouble(longitudePath));
+        }
+        return columns;
+    }
+
+    public static final class Builder {
+        private String cellIdColumn = "cellId";
+        private String latitudePath;
+        private String longitudePath;
+
+        private Builder() {
+        }
+
+        /**
+         * Column of the leaf cell id, {@code cellId} by default
+         */
+        public Builder cellIdColumn(String cellIdColumn) {
+            this.cellIdColumn = cellIdColumn;
+            return this;
+        }
+
+        /**
+         * Path of an object with {@code latitude} and {@code longitude} fields, e.g. {@code value.loc.coordinates[0]}
+         */
+        public Builder coordinatesPath(String coordinatesPath) {
+            return latitudePath(coordinatesPath + ".latitude")
+                .longitudePath(coordinatesPath + ".longitude");
+        }
+
+        /**
+         * Path of the latitude in degrees
+         */
+        public Builder latitudePath(String latitudePath) {
+            this.latitudePath = latitudePath;
+            return this;
+        }
+
+        /**
+         * Path of the longitude in degrees
+         */
+        public Builder longitudePath(String longitudePath) {
+            this.longitudePath = longitudePath;
+            return this;
+        }
+
+        public CellPointMapper build() {
+            Preconditions.checkNotNull(cellIdColumn, "cellIdColumn must be set");
+            Preconditions.checkNotNull(latitudePath, "latitudePath must be set");
+            Preconditions.checkNotNull(longitudePath, "longitudePath must be set");
+            return new CellPointMapper(cellIdColumn, latitudePath, longitudePath);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mapr.geospatial.lib.mapping;
+
+import com.google.common.collect.Iterables;
+import org.ojai.Document;
+import org.ojai.store.Query;
+
+/**
+ * Decodes found documents into typed rows by reading their fields directly, without a JSON round trip.
+ * <p>
+ * A mapper declares the fields it reads, so the query can fetch only them from the store. Mappers are
+ * written by hand per entity, see {@link CellPointMapper}, so no reflection runs per row.
+ *
+ * @param <T> type of the rows
+ */
+public interface RowMapper<T> {
+
+    /**
+     * @return paths of the fields the mapper reads, e.g. {@code cellId} or {@code value.loc}
+     */
+    String[] getFields();
+
+    /**
+     * Decodes one document, which holds at least the fields of the mapper
+     */
+    T map(Document document);
+
+    /**
+     * Projects the query to the fields of the mapper, so the store returns nothing else
+     *
+     * @return the same query
+     */
+    default Query select(Query query) {
+        return query.select(getFields());
+    }
+
+    /**
+     * Lazily decodes the documents while they are iterated
+     */
+    default Iterable<T> mapAll(Iterable<Document> documents) {
+        return Iterables.transform(documents, this::map);
+    }
+}
@@ -0,0 +1,133 @@
+package com.mapr.geospatial.lib.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps totals and latency histograms of all queries in memory, for an admin endpoint or a periodic log line.
+ * <p>
+ * Counters are {@link LongAdder}s, so recording from many threads doesn't contend. Readings taken while
+ * queries run may mix counters of a query which is half recorded.
+ */
+public class InMemoryQueryMetrics implements QueryMetrics {
+
+    private final LongAdder coverings = new LongAdder();
+    private final LongAdder coveringCells = new LongAdder();
+    private final LongAdder ranges = new LongAdder();
+    private final LatencyHistogram coveringNanos = new LatencyHistogram();
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryCharacters = new LongAdder();
+    private final LatencyHistogram queryNanos = new LatencyHistogram();
+
+    private final LongAdder results = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LatencyHistogram storeNanos = new LatencyHistogram();
+
+    @Override
+    public void coveringComputed(int cells, int ranges, long nanos) {
+        coverings.increment();
+        coveringCells.add(cells);
+        this.ranges.add(ranges);
+        coveringNanos.record(nanos);
+    }
+
+    @Override
+    public void queryGenerated(int length, long nanos) {
+        queries.increment();
+        queryCharacters.add(length);
+        queryNanos.record(nanos);
+    }
+
+    @Override
+    public void resultsRead(long storeNanos, long candidates, long matches) {
+        results.increment();
+        this.candidates.add(candidates);
+        this.matches.add(matches);
+        this.storeNanos.record(storeNanos);
+    }
+
+    /**
+     * @return number of computed coverings
+     */
+    public long getCoverings() {
+        return coverings.sum();
+    }
+
+    /**
+     * @return mean number of cells per covering
+     */
+    public double getMeanCoveringCells() {
+        return mean(coveringCells, coverings);
+    }
+
+    /**
+     * @return mean number of merged ranges per covering
+     */
+    public double getMeanRanges() {
+        return mean(ranges, coverings);
+    }
+
+    /**
+     * @return time spent computing the coverings
+     */
+    public LatencyHistogram getCoveringNanos() {
+        return coveringNanos;
+    }
+
+    /**
+     * @return mean number of characters per generated query
+     */
+    public double getMeanQueryLength() {
+        return mean(queryCharacters, queries);
+    }
+
+    /**
+     * @return time spent generating the queries
+     */
+    public LatencyHistogram getQueryNanos() {
+        return queryNanos;
+    }
+
+    /**
+     * @return time spent waiting for the store per query
+     */
+    public LatencyHistogram getStoreNanos() {
+        return storeNanos;
+    }
+
+    /**
+     * @return number of documents found by the coverings
+     */
+    public long getCandidates() {
+        return candidates.sum();
+    }
+
+    /**
+     * @return number of found documents inside of their regions
+     */
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    /**
+     * @return fraction of the found documents which the exact filter removed, 0 when nothing was found
+     */
+    public double getFalsePositiveRatio() {
+        long found = candidates.sum();
+        return found == 0 ? 0 : 1 - (double) matches.sum() / found;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("coverings=%d cells=%.1f ranges=%.1f coveringNanos[%s] queryLength=%.0f "
+                + "queryNanos[%s] storeNanos[%s] candidates=%d matches=%d falsePositives=%.3f",
+            getCoverings(), getMeanCoveringCells(), getMeanRanges(), coveringNanos, getMeanQueryLength(),
+            queryNanos, storeNanos, getCandidates(), getMatches(), getFalsePositiveRatio());
+    }
+
+    private static double mean(LongAdder total, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+}
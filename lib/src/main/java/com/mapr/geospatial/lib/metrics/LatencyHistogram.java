@@ -0,0 +1,77 @@
+package com.mapr.geospatial.lib.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. durations in nanoseconds, in power of two buckets.
+ * <p>
+ * Recording is a {@link LongAdder} increment of the bucket plus one of the sum, so it is cheap under
+ * contention. Percentiles are reported as the upper bound of their bucket, within a factor of two.
+ */
+public final class LatencyHistogram {
+
+    private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long positive = Math.max(0, value);
+        buckets[Long.SIZE - 1 - Long.numberOfLeadingZeros(positive | 1)].increment();
+        sum.add(positive);
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the recorded values, 0 when nothing is recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, 0 when nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0f p50=%d p99=%d", getCount(), getMean(), getPercentile(50),
+            getPercentile(99));
+    }
+}
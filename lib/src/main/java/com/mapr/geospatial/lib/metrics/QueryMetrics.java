@@ -0,0 +1,46 @@
+package com.mapr.geospatial.lib.metrics;
+
+/**
+ * Receives measurements of the spatial queries of an {@code S2Helper}.
+ * <p>
+ * Every method is called on the thread which does the measured work, once per query, so an implementation
+ * should only add to counters, e.g. {@link InMemoryQueryMetrics}, or forward to a metrics registry. The
+ * methods do nothing by default, so an implementation overrides only what it records.
+ */
+public interface QueryMetrics {
+
+    /**
+     * Records nothing, the default of every helper
+     */
+    QueryMetrics NONE = new QueryMetrics() {
+    };
+
+    /**
+     * Called when the covering of a region is computed, queries reused from a covering cache are not covered again
+     *
+     * @param cells  number of cells of the covering
+     * @param ranges number of merged cell id ranges
+     * @param nanos  time spent in the coverer and merging the ranges
+     */
+    default void coveringComputed(int cells, int ranges, long nanos) {
+    }
+
+    /**
+     * Called when the JSON query of a region is generated
+     *
+     * @param length number of characters of the query
+     * @param nanos  time spent generating the query
+     */
+    default void queryGenerated(int length, long nanos) {
+    }
+
+    /**
+     * Called when the documents found by a query are read to the end through the exact filter
+     *
+     * @param storeNanos time spent waiting for the store, i.e. inside the iterator of the found documents
+     * @param candidates number of documents found by the covering
+     * @param matches    number of documents inside of the region
+     */
+    default void resultsRead(long storeNanos, long candidates, long matches) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.mapr.geospatial.lib.tracking;
+
+import org.ojai.store.DocumentMutation;
+import org.ojai.store.DocumentStore;
+
+/**
+ * Destination of the position updates flushed by {@link PositionTracker}.
+ */
+public interface MutationSink {
+
+    /**
+     * Applies the mutation to the document with the id
+     */
+    void update(String id, DocumentMutation mutation);
+
+    /**
+     * Makes all applied mutations durable, called at the end of every flush
+     */
+    void flush();
+
+    /**
+     * Applies mutations with {@link DocumentStore#update(String, DocumentMutation)}
+     */
+    static MutationSink forStore(DocumentStore store) {
+        return new MutationSink() {
+            @Override
+            public void update(String id, DocumentMutation mutation) {
+                store.update(id, mutation);
+            }
+
+            @Override
+            public void flush() {
+                store.flush();
+            }
+        };
+    }
+}
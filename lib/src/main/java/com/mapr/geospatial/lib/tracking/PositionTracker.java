@@ -0,0 +1,326 @@
+package com.mapr.geospatial.lib.tracking;
+
+import com.google.common.base.Preconditions;
+import com.google.common.geometry.S2CellId;
+import com.mapr.geospatial.lib.CellIds;
+import com.mapr.geospatial.lib.CellKeyDesign;
+import com.mapr.geospatial.lib.CellLevelPlanner;
+import com.mapr.geospatial.lib.CellSalting;
+import org.ojai.store.Connection;
+import org.ojai.store.DocumentMutation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the stored positions of moving objects up to date with as few writes as possible.
+ * <p>
+ * A position is dropped when the object stays in the same cell at the configured level, so the stored
+ * position may lag behind the real one by up to a cell. A position which moves the object to another cell
+ * waits for the next {@link #flush()}; newer positions of the same object replace it, so an object updated
+ * many times between two flushes is written once. Every write is a {@link DocumentMutation} of the cell id,
+ * the columns derived from it and the coordinates only, the rest of the document is not touched. The derived
+ * columns, the parent cell ids and the salt bucket, must be configured as they were by the
+ * {@code CellIdEnricher} which loaded the table, or queries on them miss moved objects. Tables keyed by
+ * {@link CellKeyDesign cell row keys} can't be tracked, as a mutation can't move a row to another key.
+ * <p>
+ * {@link #update(String, double, double)} can be called from any number of threads; updates of different
+ * objects never wait for each other. Flushes run one at a time, e.g. from a scheduled executor.
+ */
+public class PositionTracker {
+
+    private final Connection connection;
+    private final MutationSink sink;
+    private final String cellIdColumn;
+    private final String latitudePath;
+    private final String longitudePath;
+    private final int level;
+    private final int[] parentLevels;
+    private final String[] parentColumns;
+    private final CellSalting salting;
+    private final String saltColumn;
+
+    private final ConcurrentHashMap<String, Track> tracks = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> dirty = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private PositionTracker(Builder builder) {
+        this.connection = builder.connection;
+        this.sink = builder.sink;
+        this.cellIdColumn = builder.cellIdColumn;
+        this.latitudePath = builder.latitudePath;
+        this.longitudePath = builder.longitudePath;
+        this.level = builder.level;
+        this.parentLevels = Arrays.stream(builder.parentLevels).distinct().sorted().toArray();
+        this.parentColumns = new String[parentLevels.length];
+        for (int i = 0; i < parentLevels.length; i++) {
+            parentColumns[i] = CellLevelPlanner.levelColumn(builder.cellIdColumn, parentLevels[i]);
+        }
+        this.salting = builder.salting;
+        this.saltColumn = CellSalting.saltColumn(builder.cellIdColumn);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Records new position of the object
+     *
+     * @param id  id of the object document
+     * @param lat latitude in degrees
+     * @param lng longitude in degrees
+     * @return false when the position was dropped because the object stayed in its cell
+     */
+    public boolean update(String id, double lat, double lng) {
+        updates.increment();
+        long leaf = CellIds.fromDegrees(lat, lng);
+        long cell = CellIds.parent(leaf, level);
+
+        Track track = tracks.computeIfAbsent(id, key -> new Track());
+        synchronized (track) {
+            // The pending cell is the written one unless a write is pending or running
+            if (cell == track.pendingCell) {
+                skipped.increment();
+                return false;
+            }
+            if (track.dirty) {
+                coalesced.increment();
+            } else {
+                track.dirty = true;
+                dirty.add(id);
+            }
+            track.pendingCell = cell;
+            track.pendingLeaf = leaf;
+            track.pendingLat = lat;
+            track.pendingLng = lng;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the latest pending position of every object which changed its cell since the last flush
+     * <p>
+     * A cell counts as written only once the sink took its mutation. When the sink fails, the object stays
+     * pending for the next flush and the failure is rethrown.
+     *
+     * @return number of written mutations
+     */
+    public synchronized int flush() {
+        int count = 0;
+        try {
+            String id;
+            while ((id = dirty.poll()) != null) {
+                Track track = tracks.get(id);
+                if (track == null) {
+                    continue;
+                }
+                long cell;
+                long leaf;
+                double lat;
+                double lng;
+                synchronized (track) {
+                    if (!track.dirty) {
+                        continue;
+                    }
+                    track.dirty = false;
+                    // The object left its cell and came back before the flush
+                    if (track.pendingCell == track.writtenCell) {
+                        continue;
+                    }
+                    cell = track.pendingCell;
+                    leaf = track.pendingLeaf;
+                    lat = track.pendingLat;
+                    lng = track.pendingLng;
+                }
+                DocumentMutation mutation = connection.newMutation()
+                    .setOrReplace(cellIdColumn, leaf)
+                    .setOrReplace(latitudePath, lat)
+                    .setOrReplace(longitudePath, lng);
+                for (int i = 0; i < parentLevels.length; i++) {
+                    mutation.setOrReplace(parentColumns[i], CellIds.parent(leaf, parentLevels[i]));
+                }
+                if (salting.isSalted()) {
+                    mutation.setOrReplace(saltColumn, salting.bucket(leaf));
+                }
+                try {
+                    sink.update(id, mutation);
+                } catch (RuntimeException e) {
+                    synchronized (track) {
+                        // A newer position may have made the object pending again meanwhile
+                        if (!track.dirty) {
+                            track.dirty = true;
+                            dirty.add(id);
+                        }
+                    }
+                    throw e;
+                }
+                synchronized (track) {
+                    track.writtenCell = cell;
+                }
+                count++;
+            }
+            sink.flush();
+        } finally {
+            written.add(count);
+        }
+        return count;
+    }
+
+    /**
+     * Forgets the object, e.g. after its document is deleted. Its next position is always written.
+     * <p>
+     * Callers must stop updating the object before forgetting it: an update or flush running at the same
+     * time may still hold the forgotten state, and its changes are lost.
+     */
+    public void forget(String id) {
+        tracks.remove(id);
+    }
+
+    /**
+     * @return snapshot of the counters
+     */
+    public TrackerStats getStats() {
+        return new TrackerStats(updates.sum(), skipped.sum(), coalesced.sum(), written.sum(), tracks.size());
+    }
+
+    /**
+     * Last written and pending cell of one object, guarded by its own monitor
+     */
+    private static final class Track {
+        /**
+         * 0 is not a valid cell id, so the first position is never skipped
+         */
+        private long writtenCell;
+        private boolean dirty;
+        /**
+         * Latest cell of the object, equal to the written cell unless a write is pending or running
+         */
+        private long pendingCell;
+        private long pendingLeaf;
+        private double pendingLat;
+        private double pendingLng;
+    }
+
+    public static final class Builder {
+        private Connection connection;
+        private MutationSink sink;
+        private String cellIdColumn = "cellId";
+        private String latitudePath;
+        private String longitudePath;
+        private int level = 20;
+        private int[] parentLevels = new int[0];
+        private CellSalting salting = CellSalting.NONE;
+        private boolean cellRowKeys;
+
+        private Builder() {
+        }
+
+        /**
+         * OJAI connection which creates the mutations
+         */
+        public Builder connection(Connection connection) {
+            this.connection = connection;
+            return this;
+        }
+
+        /**
+         * Destination of the mutations, e.g. {@link MutationSink#forStore(org.ojai.store.DocumentStore)}
+         */
+        public Builder sink(MutationSink sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Column of the leaf cell id, {@code cellId} by default
+         */
+        public Builder cellIdColumn(String cellIdColumn) {
+            this.cellIdColumn = cellIdColumn;
+            return this;
+        }
+
+        /**
+         * Path of an object with {@code latitude} and {@code longitude} fields, e.g. {@code value.loc.coordinates[0]}
+         */
+        public Builder coordinatesPath(String coordinatesPath) {
+            return latitudePath(coordinatesPath + ".latitude")
+                .longitudePath(coordinatesPath + ".longitude");
+        }
+
+        /**
+         * Path of the latitude in degrees
+         */
+        public Builder latitudePath(String latitudePath) {
+            this.latitudePath = latitudePath;
+            return this;
+        }
+
+        /**
+         * Path of the longitude in degrees
+         */
+        public Builder longitudePath(String longitudePath) {
+            this.longitudePath = longitudePath;
+            return this;
+        }
+
+        /**
+         * Level of the cells within which movements are not written, 20 by default, cells of about 9 m
+         */
+        public Builder level(int level) {
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Levels of the parent cell ids stored next to the leaf cell id, in the columns named by
+         * {@link CellLevelPlanner#levelColumn(String, int)}; they are rewritten with every move. None by default.
+         */
+        public Builder parentLevels(int... parentLevels) {
+            this.parentLevels = parentLevels.clone();
+            return this;
+        }
+
+        /**
+         * Salting of the table, the bucket in {@link CellSalting#saltColumn(String)} is rewritten with every
+         * move. {@link CellSalting#NONE} by default.
+         */
+        public Builder salting(CellSalting salting) {
+            this.salting = salting;
+            return this;
+        }
+
+        /**
+         * Whether the {@code _id} of the documents are {@link CellKeyDesign cell row keys}, off by default.
+         * Such tables can't be tracked, {@link #build()} rejects them.
+         */
+        public Builder cellRowKeys(boolean cellRowKeys) {
+            this.cellRowKeys = cellRowKeys;
+            return this;
+        }
+
+        public PositionTracker build() {
+            Preconditions.checkNotNull(connection, "connection must be set");
+            Preconditions.checkNotNull(sink, "sink must be set");
+            Preconditions.checkNotNull(cellIdColumn, "cellIdColumn must be set");
+            Preconditions.checkNotNull(latitudePath, "latitudePath must be set");
+            Preconditions.checkNotNull(longitudePath, "longitudePath must be set");
+            Preconditions.checkNotNull(salting, "salting must be set");
+            Preconditions.checkArgument(!cellRowKeys,
+                "Cell row keys can't follow moving objects, track a table keyed by the object ids");
+            for (int parentLevel : parentLevels) {
+                Preconditions.checkArgument(0 <= parentLevel && parentLevel < S2CellId.MAX_LEVEL,
+                    "Parent level must be in [0, %s): %s", S2CellId.MAX_LEVEL, parentLevel);
+            }
+            Preconditions.checkArgument(0 <= level && level <= S2CellId.MAX_LEVEL,
+                "level must be in [0, %s]: %s", S2CellId.MAX_LEVEL, level);
+            return new PositionTracker(this);
+        }
+    }
+}
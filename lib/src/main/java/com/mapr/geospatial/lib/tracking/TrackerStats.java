@@ -0,0 +1,35 @@
+package com.mapr.geospatial.lib.tracking;
+
+import lombok.Value;
+
+/**
+ * Counters of a {@link PositionTracker}.
+ */
+@Value
+public class TrackerStats {
+
+    /**
+     * Number of received positions
+     */
+    private long updates;
+
+    /**
+     * Positions dropped because the object stayed in the same cell
+     */
+    private long skipped;
+
+    /**
+     * Positions which replaced a position of the same object not flushed yet
+     */
+    private long coalesced;
+
+    /**
+     * Mutations written to the sink
+     */
+    private long written;
+
+    /**
+     * Number of objects whose last cell is known
+     */
+    private int tracked;
+}
@@ -1,11 +1,18 @@
 package com.mapr.geospatial.sample;
 
 import com.google.common.base.Preconditions;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
 import com.mapr.geospatial.lib.GPoint;
 import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import com.mapr.geospatial.lib.ingest.BatchSink;
+import com.mapr.geospatial.lib.ingest.BulkLoader;
+import com.mapr.geospatial.lib.ingest.LoadStats;
+import com.mapr.geospatial.lib.metrics.InMemoryQueryMetrics;
 import com.mapr.geospatial.sample.entity.Point;
+import com.mapr.geospatial.sample.entity.PointMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.ojai.Document;
 import org.ojai.DocumentStream;
 import org.ojai.store.Connection;
@@ -13,13 +20,10 @@ import org.ojai.store.DocumentStore;
 import org.ojai.store.DriverManager;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-
-import static org.apache.commons.codec.CharEncoding.UTF_8;
 
 @Slf4j
 public class Inclusion {
@@ -30,7 +34,7 @@ public class Inclusion {
 
     private static final String DRIVER_NAME = "ojai:mapr:";
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final PointMapper pointMapper = new PointMapper();
 
     // Create an OJAI connection to MapR cluster
     private static final Connection connection = DriverManager.getConnection(DRIVER_NAME);
@@ -41,33 +45,36 @@ public class Inclusion {
 
     public static void main(String[] args) throws Exception {
         try {
-            S2Helper helper = new S2Helper();
+            InMemoryQueryMetrics metrics = new InMemoryQueryMetrics();
+            S2Helper helper = new S2Helper(CoveringPolicy.fixed(CoveringOptions.DEFAULT), null, metrics);
 
             // Insert sample data to db (airports, states)
             File airportsFile
                 = getResourceFile(Inclusion.class, POINTS_SAMPLE_DATA);
 
-            insertDataFromFile(connection, airports, airportsFile);
+            insertDataFromFile(connection, AIRPORTS_TABLE_NAME, airportsFile);
 
             GPoint lowerLeft = new GPoint(44.984924, -111.044691);
             GPoint upperRight = new GPoint(41.003994, -104.057992);
 
-            String query = helper.getQueryForRectangle("cellId", lowerLeft, upperRight);
+            SpatialQuery spatialQuery = helper.getSpatialQueryForRectangle("cellId", lowerLeft, upperRight);
 
             List<Point> points = new ArrayList<>();
 
             DocumentStream stream = airports.findQuery(
-                connection.newQuery()
-                    .where(query)
+                pointMapper.select(connection.newQuery())
+                    .where(spatialQuery.getCondition(connection))
                     .build()
             );
 
-            for (Document document : stream) {
-                Point pointDto = mapper.readValue(document.asJsonString(), Point.class);
+            // The covering cells stick out of the rectangle, keep only airports inside of it
+            for (Document document : spatialQuery.filter(stream)) {
+                Point pointDto = pointMapper.map(document);
                 points.add(pointDto);
             }
 
             log.info("Number of airports: {}", points.size());
+            log.info("Query metrics: {}", metrics);
 
             points.stream()
                 .map(Point::getValue)
@@ -82,16 +89,16 @@ public class Inclusion {
 
 
     /**
-     * Reads a file and insert data to db. One line in file is one insert to db.
-     * Data in the file must be in json format.
+     * Reads a file and inserts data to db in batches. Data in the file must be in json format,
+     * one document per line.
      */
     private static void insertDataFromFile(Connection connection,
-                                           DocumentStore store, File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file, UTF_8);
-        while (scanner.hasNext()) {
-            store.insert(connection.newDocument(scanner.nextLine()));
-        }
-        store.flush();
+                                           String storePath, File file) throws IOException {
+        LoadStats stats = BulkLoader.builder()
+            .parser(connection::newDocument)
+            .build()
+            .load(file.toPath(), BatchSink.forStore(connection, storePath));
+        log.info("Loaded {} documents from {}", stats.getRows(), file.getName());
     }
 
     /**
@@ -1,25 +1,29 @@
 package com.mapr.geospatial.sample;
 
 import com.google.common.base.Preconditions;
-import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.CoveringOptions;
+import com.mapr.geospatial.lib.CoveringPolicy;
 import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.SpatialQuery;
+import com.mapr.geospatial.lib.ingest.BatchSink;
+import com.mapr.geospatial.lib.ingest.BulkLoader;
+import com.mapr.geospatial.lib.ingest.LoadStats;
+import com.mapr.geospatial.lib.metrics.InMemoryQueryMetrics;
 import com.mapr.geospatial.sample.entity.Coordinate;
 import com.mapr.geospatial.sample.entity.Point;
+import com.mapr.geospatial.sample.entity.PointMapper;
 import com.mapr.geospatial.sample.entity.State;
+import com.mapr.geospatial.sample.entity.StateMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.ojai.Document;
 import org.ojai.DocumentStream;
 import org.ojai.store.*;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-
-import static org.apache.commons.codec.CharEncoding.UTF_8;
 
 @Slf4j
 public class PolygonInclusionWithAdditionalQuery {
@@ -38,7 +42,9 @@ public class PolygonInclusionWithAdditionalQuery {
 
     private static final String DRIVER_NAME = "ojai:mapr:";
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final PointMapper pointMapper = new PointMapper();
+
+    private static final StateMapper stateMapper = new StateMapper();
 
     // Create an OJAI connection to MapR cluster
     private static final Connection connection = DriverManager.getConnection(DRIVER_NAME);
@@ -51,22 +57,23 @@ public class PolygonInclusionWithAdditionalQuery {
 
     public static void main(String[] args) throws Exception {
         try {
-            S2Helper helper = new S2Helper();
+            InMemoryQueryMetrics metrics = new InMemoryQueryMetrics();
+            S2Helper helper = new S2Helper(CoveringPolicy.fixed(CoveringOptions.DEFAULT), null, metrics);
 
             // Insert sample data to db (airports, states)
             File airportsFile
                 = getResourceFile(PolygonInclusionWithAdditionalQuery.class, POINTS_SAMPLE_DATA);
 
-            insertDataFromFile(connection, airports, airportsFile);
+            insertDataFromFile(connection, AIRPORTS_TABLE_NAME, airportsFile);
 
             File statesFile =
                 getResourceFile(PolygonInclusionWithAdditionalQuery.class, STATES_SAMPLE_DATA);
 
-            insertDataFromFile(connection, states, statesFile);
+            insertDataFromFile(connection, STATES_TABLE_NAME, statesFile);
 
             log.info("Find all airports in the {}", LOOKED_STATE);
 
-            final Query query = connection.newQuery()
+            final Query query = stateMapper.select(connection.newQuery())
                 .where(
                     connection.newCondition()
                         .is("code", QueryCondition.Op.EQUAL, LOOKED_STATE)
@@ -77,30 +84,33 @@ public class PolygonInclusionWithAdditionalQuery {
             DocumentStream statesDocs = states.findQuery(query);
 
             State state
-                = statesDocs.iterator().next().toJavaBean(State.class);
+                = stateMapper.map(statesDocs.iterator().next());
 
-            List<GPoint> points = convertCoordinatesToGPoints(state.getLoc().getCoordinates().get(0));
+            List<Coordinate> boundary = state.getLoc().getCoordinates().get(0);
+
+            QueryCondition internationalAirports = connection.newCondition()
+                .is("value.type", QueryCondition.Op.EQUAL, "International")
+                .build();
 
-            String queryForPolygon = helper.getQueryForPolygon("cellId", points);
+            SpatialQuery spatialQuery
+                = helper.getSpatialQueryForPolygon("cellId", latitudes(boundary), longitudes(boundary));
 
 
             List<Point> airportsPoints = new ArrayList<>();
             DocumentStream stream = airports.findQuery(
-                connection.newQuery()
-                    .where(queryForPolygon)
-                    .where(
-                        connection.newCondition()
-                            .is("value.type", QueryCondition.Op.EQUAL, "International")
-                            .build())
+                pointMapper.select(connection.newQuery())
+                    .where(spatialQuery.getCondition(connection, internationalAirports))
                     .build()
             );
 
-            for (Document document : stream) {
-                Point pointDto = mapper.readValue(document.asJsonString(), Point.class);
+            // The covering cells stick out of the state, keep only airports inside of it
+            for (Document document : spatialQuery.filter(stream)) {
+                Point pointDto = pointMapper.map(document);
                 airportsPoints.add(pointDto);
             }
 
             log.info("Number of airports in state {} : {}", LOOKED_STATE, airportsPoints.size());
+            log.info("Query metrics: {}", metrics);
 
             airportsPoints.stream()
                 .map(Point::getValue)
@@ -115,25 +125,33 @@ public class PolygonInclusionWithAdditionalQuery {
         }
     }
 
-    private static List<GPoint> convertCoordinatesToGPoints(List<Coordinate> coordinates) {
-        List<GPoint> points = new ArrayList<>();
-        for (Coordinate point : coordinates) {
-            points.add(new GPoint(point.getLatitude(), point.getLongitude()));
+    private static double[] latitudes(List<Coordinate> coordinates) {
+        double[] latitudes = new double[coordinates.size()];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = coordinates.get(i).getLatitude();
         }
-        return points;
+        return latitudes;
+    }
+
+    private static double[] longitudes(List<Coordinate> coordinates) {
+        double[] longitudes = new double[coordinates.size()];
+        for (int i = 0; i < longitudes.length; i++) {
+            longitudes[i] = coordinates.get(i).getLongitude();
+        }
+        return longitudes;
     }
 
     /**
-     * Reads a file and insert data to db. One line in file is one insert to db.
-     * Data in the file must be in json format.
+     * Reads a file and inserts data to db in batches. Data in the file must be in json format,
+     * one document per line.
      */
     private static void insertDataFromFile(Connection connection,
-                                           DocumentStore store, File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file, UTF_8);
-        while (scanner.hasNext()) {
-            store.insert(connection.newDocument(scanner.nextLine()));
-        }
-        store.flush();
+                                           String storePath, File file) throws IOException {
+        LoadStats stats = BulkLoader.builder()
+            .parser(connection::newDocument)
+            .build()
+            .load(file.toPath(), BatchSink.forStore(connection, storePath));
+        log.info("Loaded {} documents from {}", stats.getRows(), file.getName());
     }
 
     /**
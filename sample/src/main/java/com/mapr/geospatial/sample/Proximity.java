@@ -2,24 +2,26 @@ package com.mapr.geospatial.sample;
 
 import com.google.common.base.Preconditions;
 import com.mapr.geospatial.lib.GPoint;
+import com.mapr.geospatial.lib.Neighbor;
+import com.mapr.geospatial.lib.ProximityStream;
+import com.mapr.geospatial.lib.RangeSource;
 import com.mapr.geospatial.lib.S2Helper;
+import com.mapr.geospatial.lib.ingest.BatchSink;
+import com.mapr.geospatial.lib.ingest.BulkLoader;
+import com.mapr.geospatial.lib.ingest.LoadStats;
 import com.mapr.geospatial.sample.entity.Point;
+import com.mapr.geospatial.sample.entity.PointMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.ojai.Document;
-import org.ojai.DocumentStream;
 import org.ojai.store.Connection;
 import org.ojai.store.DocumentStore;
 import org.ojai.store.DriverManager;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-
-import static org.apache.commons.codec.CharEncoding.UTF_8;
 
 @Slf4j
 public class Proximity {
@@ -32,7 +34,7 @@ public class Proximity {
 
     private static final double SEARCH_RADIUS_IN_METERS = 20000;
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final PointMapper pointMapper = new PointMapper();
 
     // Create an OJAI connection to MapR cluster
     private static final Connection connection = DriverManager.getConnection(DRIVER_NAME);
@@ -49,33 +51,26 @@ public class Proximity {
             File airportsFile
                 = getResourceFile(Inclusion.class, POINTS_SAMPLE_DATA);
 
-            insertDataFromFile(connection, airports, airportsFile);
+            insertDataFromFile(connection, AIRPORTS_TABLE_NAME, airportsFile);
 
             log.info("All airports that are located at less than {} m from the reservoir in NYC Central Park", SEARCH_RADIUS_IN_METERS);
 
             GPoint center = new GPoint(40.782865, -73.965355);
 
-            String queryForCircle = helper.getQueryForCircle("cellId", center, SEARCH_RADIUS_IN_METERS);
+            ProximityStream nearestFirst = new ProximityStream(helper,
+                RangeSource.of(connection, airports, "cellId", pointMapper.getFields()), "cellId", center, SEARCH_RADIUS_IN_METERS);
 
             List<Point> points = new ArrayList<>();
 
-            DocumentStream stream = airports.findQuery(
-                connection.newQuery()
-                    .where(queryForCircle)
-                    .build()
-            );
-
-            for (Document document : stream) {
-                Point pointDto = mapper.readValue(document.asJsonString(), Point.class);
+            // Airports are returned closest first, as soon as the ring around the center they fall in is read
+            for (Neighbor neighbor : nearestFirst) {
+                Point pointDto = pointMapper.map(neighbor.getDocument());
                 points.add(pointDto);
+                log.info("{} m: {}", Math.round(neighbor.getDistanceInMeters()), pointDto.getValue());
             }
 
             log.info("Number of airports: {}", points.size());
 
-            points.stream()
-                .map(Point::getValue)
-                .forEach(x -> log.info(x.toString()));
-
         } finally {
             purgeTable(airports);
             airports.close();
@@ -85,16 +80,16 @@ public class Proximity {
     }
 
     /**
-     * Reads a file and insert data to db. One line in file is one insert to db.
-     * Data in the file must be in json format.
+     * Reads a file and inserts data to db in batches. Data in the file must be in json format,
+     * one document per line.
      */
     private static void insertDataFromFile(Connection connection,
-                                           DocumentStore store, File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file, UTF_8);
-        while (scanner.hasNext()) {
-            store.insert(connection.newDocument(scanner.nextLine()));
-        }
-        store.flush();
+                                           String storePath, File file) throws IOException {
+        LoadStats stats = BulkLoader.builder()
+            .parser(connection::newDocument)
+            .build()
+            .load(file.toPath(), BatchSink.forStore(connection, storePath));
+        log.info("Loaded {} documents from {}", stats.getRows(), file.getName());
     }
 
     /**
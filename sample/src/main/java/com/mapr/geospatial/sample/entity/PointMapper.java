@@ -0,0 +1,22 @@
+package com.mapr.geospatial.sample.entity;
+
+import com.mapr.geospatial.lib.mapping.RowMapper;
+import org.ojai.Document;
+
+/**
+ * Reads airport documents into {@link Point}s, the {@code value} object is kept as a map
+ */
+public class PointMapper implements RowMapper<Point> {
+
+    private static final String[] FIELDS = {"_id", "cellId", "value"};
+
+    @Override
+    public String[] getFields() {
+        return FIELDS.clone();
+    }
+
+    @Override
+    public Point map(Document document) {
+        return new Point(document.getIdString(), document.getLongObj("cellId"), document.getMap("value"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.mapr.geospatial.sample.entity;
+
+import com.mapr.geospatial.lib.mapping.RowMapper;
+import org.ojai.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads state documents into {@link State}s, converting every vertex of the boundary into a {@link Coordinate}
+ */
+public class StateMapper implements RowMapper<State> {
+
+    private static final String[] FIELDS = {"_id", "name", "code", "loc"};
+
+    @Override
+    public String[] getFields() {
+        return FIELDS.clone();
+    }
+
+    @Override
+    public State map(Document document) {
+        List<List<Coordinate>> rings = new ArrayList<>();
+        for (Object ring : document.getList("loc.coordinates")) {
+            List<?> vertices = (List<?>) ring;
+            List<Coordinate> coordinates = new ArrayList<>(vertices.size());
+            for (Object vertex : vertices) {
+                Map<?, ?> coordinate = (Map<?, ?>) vertex;
+                coordinates.add(new Coordinate(
+                    ((Number) coordinate.get("latitude")).doubleValue(),
+                    ((Number) coordinate.get("longitude")).doubleValue()));
+            }
+            rings.add(coordinates);
+        }
+        Location loc = new Location(document.getString("loc.type"), rings);
+        return new State(document.getIdString(), document.getString("name"), document.getString("code"), loc);
+    }
+}